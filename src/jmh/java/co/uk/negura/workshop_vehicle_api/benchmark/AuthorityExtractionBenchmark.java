@@ -0,0 +1,97 @@
+package co.uk.negura.workshop_vehicle_api.benchmark;
+
+import co.uk.negura.workshop_vehicle_api.security.VehicleAuthority;
+import co.uk.negura.workshop_vehicle_api.security.VehicleAuthorizationManager;
+import co.uk.negura.workshop_vehicle_api.security.VehiclePrincipal;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Extraction of the username and authorities from the token validation payload of workshop-users-api, and the
+ * authority check of a request. The untyped benchmarks reproduce what the JwtAuthenticationFilter did for every
+ * request before the principal was cached: a new ObjectMapper, a walk over nested maps and a string comparison per
+ * authority. The principal benchmarks read the payload into a VehiclePrincipal, which now happens once per token.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthorityExtractionBenchmark {
+
+    @Param({"1", "4"})
+    private int roles;
+
+    private Map<String, Object> responseBody;
+
+    private Authentication untypedAuthentication;
+
+    private Authentication principalAuthentication;
+
+    private final AuthorityAuthorizationManager<RequestAuthorizationContext> untypedManager =
+            AuthorityAuthorizationManager.hasAuthority(VehicleAuthority.USER_DETAILS_DELETE.name());
+
+    private final VehicleAuthorizationManager principalManager =
+            VehicleAuthorizationManager.requires(VehicleAuthority.USER_DETAILS_DELETE);
+
+    @Setup
+    public void setUp() throws IOException {
+        responseBody = BenchmarkFixtures.validationPayload(roles, 6);
+        UserDetails user = readUntypedUserDetails(responseBody);
+        untypedAuthentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        VehiclePrincipal principal = VehiclePrincipal.fromValidationMessage((String) responseBody.get("message"));
+        principalAuthentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    @Benchmark
+    public UserDetails readUntypedUserDetails() throws JsonProcessingException {
+        return readUntypedUserDetails(responseBody);
+    }
+
+    @Benchmark
+    public UserDetails readVehiclePrincipal() throws IOException {
+        return VehiclePrincipal.fromValidationMessage((String) responseBody.get("message"));
+    }
+
+    @Benchmark
+    public AuthorizationDecision checkUntypedAuthority() {
+        return untypedManager.check(() -> untypedAuthentication, null);
+    }
+
+    @Benchmark
+    public AuthorizationDecision checkVehicleAuthority() {
+        return principalManager.check(() -> principalAuthentication, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static UserDetails readUntypedUserDetails(Map<String, Object> responseBody) throws JsonProcessingException {
+        String message = (String) responseBody.get("message");
+        Map<String, Object> messageMap = new ObjectMapper().readValue(message, new TypeReference<>() {
+        });
+        Map<String, Object> dataMap = (Map<String, Object>) messageMap.get("data");
+        List<Map<String, Object>> roles = (List<Map<String, Object>>) dataMap.get("roles");
+        List<GrantedAuthority> authorities = roles.stream()
+                .flatMap(role -> ((List<Map<String, Object>>) role.get("authorities")).stream())
+                .map(authority -> (GrantedAuthority) new SimpleGrantedAuthority((String) authority.get("name")))
+                .collect(Collectors.toList());
+        return User.withUsername((String) dataMap.get("username")).authorities(authorities).password("").build();
+    }
+}
@@ -0,0 +1,60 @@
+package co.uk.negura.workshop_vehicle_api.benchmark;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory fixtures shared by the benchmarks, so they run without a database or the users API.
+ */
+final class BenchmarkFixtures {
+
+    static final String VEHICLE_JSON = "{\"id\":1,\"registration\":\"AB12 CDE\",\"make\":\"Ford\",\"model\":\"Focus\"," +
+            "\"colour\":\"Blue\",\"colourCode\":\"B1\",\"drivable\":true,\"vin\":\"WF0AXXGCDA1234567\",\"engineSize\":\"1.6\"," +
+            "\"fuelType\":\"Petrol\",\"transmission\":\"Manual\",\"bodyType\":\"Hatchback\",\"year\":\"2015\",\"mileage\":\"60000\"}";
+
+    static final String FIELD_LEVEL_JSON_PATCH = "[{\"op\":\"replace\",\"path\":\"/colour\",\"value\":\"Red\"}," +
+            "{\"op\":\"replace\",\"path\":\"/mileage\",\"value\":\"61000\"}]";
+
+    static final String GENERIC_JSON_PATCH = "[{\"op\":\"test\",\"path\":\"/make\",\"value\":\"Ford\"}," +
+            "{\"op\":\"copy\",\"from\":\"/colour\",\"path\":\"/colourCode\"}]";
+
+    static final String FIELD_LEVEL_MERGE_PATCH = "{\"colour\":\"Red\",\"mileage\":\"61000\"}";
+
+    static final String GENERIC_MERGE_PATCH = "{\"colour\":\"Red\",\"extra\":{\"note\":\"ignored\"}}";
+
+    private BenchmarkFixtures() {
+    }
+
+    static VehicleEntity vehicle() {
+        return new VehicleEntity(1L, "AB12 CDE", "Ford", "Focus", "Blue", "B1", true, "WF0AXXGCDA1234567",
+                new BigDecimal("1.6"), "Petrol", "Manual", "Hatchback", 2015, 60000);
+    }
+
+    /**
+     * Build the body returned by workshop-users-api for a valid token, the user details are a JSON string in the message.
+     * The first role grants the authorities the vehicle API checks, the other roles grant authorities it ignores.
+     * @param roles the number of roles of the user.
+     * @param authoritiesPerRole the number of authorities of each role.
+     * @return the response body of the token validation request.
+     */
+    static Map<String, Object> validationPayload(int roles, int authoritiesPerRole) {
+        StringBuilder message = new StringBuilder("{\"data\":{\"username\":\"technician\",\"roles\":[");
+        for (int role = 0; role < roles; role++) {
+            message.append(role == 0 ? "" : ",").append("{\"name\":\"ROLE_").append(role).append("\",\"authorities\":[");
+            for (int authority = 0; authority < authoritiesPerRole; authority++) {
+                message.append(authority == 0 ? "" : ",").append("{\"name\":\"USER_DETAILS_")
+                        .append(List.of("READ", "WRITE", "DELETE").get(authority % 3));
+                if (role > 0) {
+                    message.append('_').append(role);
+                }
+                message.append("\"}");
+            }
+            message.append("]}");
+        }
+        message.append("]}}");
+        return Map.of("object", "user", "status", "OK", "message", message.toString());
+    }
+}
@@ -0,0 +1,298 @@
+package co.uk.negura.workshop_vehicle_api.benchmark;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A hand-written VehicleRepository over a map, for benchmarks that measure the service rather than the database.
+ * Only the lookups by ID and registration key and saveAndFlush are implemented, saving a vehicle whose registration
+ * is taken fails like the unique index would. Every other method throws UnsupportedOperationException,
+ * so a benchmark that strays onto another path fails instead of measuring a stub.
+ */
+final class InMemoryVehicleRepository implements VehicleRepository {
+
+    private final Map<Long, VehicleEntity> vehiclesById = new HashMap<>();
+    private final Map<String, VehicleEntity> vehiclesByRegistrationKey = new HashMap<>();
+
+    InMemoryVehicleRepository(VehicleEntity... vehicles) {
+        for (VehicleEntity vehicle : vehicles) {
+            vehiclesById.put(vehicle.getId(), vehicle);
+            vehiclesByRegistrationKey.put(VehicleEntity.normalizeKey(vehicle.getRegistration()), vehicle);
+        }
+    }
+
+    @Override
+    public Optional<VehicleEntity> findById(Long id) {
+        return Optional.ofNullable(vehiclesById.get(id));
+    }
+
+    @Override
+    public Optional<VehicleEntity> findByRegistrationKey(String registrationKey) {
+        return Optional.ofNullable(vehiclesByRegistrationKey.get(registrationKey));
+    }
+
+    @Override
+    public <S extends VehicleEntity> S saveAndFlush(S entity) {
+        String registrationKey = VehicleEntity.normalizeKey(entity.getRegistration());
+        VehicleEntity existing = vehiclesByRegistrationKey.get(registrationKey);
+        if (existing != null && existing != entity) {
+            throw new DataIntegrityViolationException("Duplicate entry", new ConstraintViolationException(
+                    "Duplicate entry '" + registrationKey + "'", null, "uk_vehicles_registration_key"));
+        }
+        vehiclesById.put(entity.getId(), entity);
+        vehiclesByRegistrationKey.put(registrationKey, entity);
+        return entity;
+    }
+
+    @Override
+    public List<VehicleEntity> findByRegistrationKeyIn(Collection<String> registrationKeys) {
+        List<VehicleEntity> vehicles = new ArrayList<>();
+        for (String registrationKey : registrationKeys) {
+            findByRegistrationKey(registrationKey).ifPresent(vehicles::add);
+        }
+        return vehicles;
+    }
+
+    @Override
+    public List<VehicleEntity> findAllById(Iterable<Long> ids) {
+        List<VehicleEntity> vehicles = new ArrayList<>();
+        for (Long id : ids) {
+            findById(id).ifPresent(vehicles::add);
+        }
+        return vehicles;
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return vehiclesById.containsKey(id);
+    }
+
+    @Override
+    public long count() {
+        return vehiclesById.size();
+    }
+
+    @Override
+    public List<String> findExistingRegistrationKeys(Collection<String> registrationKeys) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<VehicleEntity> findChangedSince(Instant since, Long afterId, Instant before, int size) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int purgeDeletedBefore(Instant before) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<VehicleEntity> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<VehicleEntity> streamAll() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Page<Map<String, Object>> findAllProjected(Specification<VehicleEntity> specification, List<String> fields,
+                                                      Pageable pageable) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllProjected(Specification<VehicleEntity> specification, List<String> fields,
+                                                      Sort sort, Limit limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public <S extends VehicleEntity> List<S> saveAllAndFlush(Iterable<S> entities) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<VehicleEntity> entities) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public VehicleEntity getOne(Long id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public VehicleEntity getById(Long id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public VehicleEntity getReferenceById(Long id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends VehicleEntity> List<S> findAll(Example<S> example) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends VehicleEntity> List<S> findAll(Example<S> example, Sort sort) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends VehicleEntity> List<S> saveAll(Iterable<S> entities) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<VehicleEntity> findAll() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends VehicleEntity> S save(S entity) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(VehicleEntity entity) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends VehicleEntity> entities) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAll() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<VehicleEntity> findAll(Sort sort) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Page<VehicleEntity> findAll(Pageable pageable) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends VehicleEntity> Optional<S> findOne(Example<S> example) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends VehicleEntity> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends VehicleEntity> long count(Example<S> example) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends VehicleEntity> boolean exists(Example<S> example) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends VehicleEntity, R> R findBy(Example<S> example,
+                                                Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Optional<VehicleEntity> findOne(Specification<VehicleEntity> spec) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<VehicleEntity> findAll(Specification<VehicleEntity> spec) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Page<VehicleEntity> findAll(Specification<VehicleEntity> spec, Pageable pageable) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<VehicleEntity> findAll(Specification<VehicleEntity> spec, Sort sort) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long count(Specification<VehicleEntity> spec) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean exists(Specification<VehicleEntity> spec) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long delete(Specification<VehicleEntity> spec) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends VehicleEntity, R> R findBy(Specification<VehicleEntity> spec,
+                                                Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,354 @@
+package co.uk.negura.workshop_vehicle_api.benchmark;
+
+import co.uk.negura.workshop_vehicle_api.WorkshopVehicleApiApplication;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the servlet application on the Tomcat platform thread pool against virtual threads
+ * ({@code spring.threads.virtual.enabled}). The application is started in a JVM of its own once per threading model,
+ * on an in-memory H2 database in MySQL mode, with workshop-users-api stubbed by an HTTP server in this JVM that answers
+ * every token validation after a fixed latency. The token and vehicle caches are disabled, so every request blocks on
+ * the validation call and on a query, and every client sends its own token, so no validation is coalesced.
+ * The connection pool to workshop-users-api is sized to the number of clients, and its read timeout set well above
+ * the latency of the stub, so that it is the threading model rather than the client that limits the validations in flight.
+ * <p>
+ * Each client sends vehicle searches by ID one after another, first for the warmup and then for the measurement.
+ * The throughput and the p50/p99 latency of the measurement are reported for both models.
+ * The applications run with {@code -Djdk.tracePinnedThreads=full}, and the test fails if either reports a virtual
+ * thread pinned to its carrier.
+ * <p>
+ * Run with {@code mvn -Pjmh test-compile exec:exec@load-test}, options are passed with -Dload.args, e.g.
+ * {@code -Dload.args="clients=400 warmup=PT10S duration=PT30S validationLatency=PT0.02S"}.
+ */
+public final class ThreadingModelLoadTest {
+
+    private static final String PINNED_FRAME = "VirtualThread$VThreadContinuation.onPinned";
+
+    private static final String VALIDATION_MESSAGE = "{\"object\":\"user\",\"data\":{\"id\":1,\"username\":\"load\"," +
+            "\"roles\":[{\"name\":\"MECHANIC\",\"authorities\":[{\"name\":\"USER_DETAILS_READ\"}," +
+            "{\"name\":\"USER_DETAILS_WRITE\"},{\"name\":\"USER_DETAILS_DELETE\"}]}]}}";
+
+    private static final String VEHICLE = "{\"registration\":\"LT%02d ABC\",\"make\":\"Ford\",\"model\":\"Focus\"," +
+            "\"colour\":\"Blue\",\"drivable\":true,\"engineSize\":\"1.6\",\"year\":\"2015\",\"mileage\":\"60000\"}";
+
+    private static final int VEHICLES = 100;
+
+    private final int clients;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Duration validationLatency;
+    private final Duration startupTimeout;
+    private final HttpClient httpClient;
+
+    private ThreadingModelLoadTest(Map<String, String> options) {
+        this.clients = Integer.parseInt(options.getOrDefault("clients", "400"));
+        this.warmup = Duration.parse(options.getOrDefault("warmup", "PT10S"));
+        this.duration = Duration.parse(options.getOrDefault("duration", "PT20S"));
+        this.validationLatency = Duration.parse(options.getOrDefault("validationLatency", "PT0.02S"));
+        this.startupTimeout = Duration.parse(options.getOrDefault("startupTimeout", "PT3M"));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Options are passed as name=value, got " + arg);
+            }
+            options.put(option[0], option[1]);
+        }
+        System.exit(new ThreadingModelLoadTest(options).run());
+    }
+
+    /**
+     * Run the load against both threading models and report the results.
+     * @return the exit status, 1 if a virtual thread was pinned or a run answered no request.
+     */
+    private int run() throws Exception {
+        HttpServer usersApi = startUsersApi();
+        List<Result> results = new ArrayList<>();
+        try {
+            for (boolean virtualThreads : new boolean[]{false, true}) {
+                results.add(runApplication(virtualThreads, usersApi.getAddress().getPort()));
+            }
+        } finally {
+            usersApi.stop(0);
+        }
+        System.out.printf("%nclients=%d warmup=%s duration=%s validationLatency=%s%n",
+                clients, warmup, duration, validationLatency);
+        System.out.printf("%-10s %10s %8s %12s %10s %10s %8s%n",
+                "threads", "requests", "errors", "req/s", "p50 ms", "p99 ms", "pinned");
+        int status = 0;
+        for (Result result : results) {
+            System.out.printf("%-10s %10d %8d %12.1f %10.2f %10.2f %8d%n", result.threads(), result.requests(),
+                    result.errors(), result.throughput(), result.percentileMillis(0.50), result.percentileMillis(0.99),
+                    result.pinnedTraces().size());
+            if (result.requests() == result.errors()) {
+                System.out.println(result.threads() + " answered no request, see " + result.log());
+                status = 1;
+            }
+            for (String trace : result.pinnedTraces()) {
+                System.out.println("Pinned virtual thread with " + result.threads() + " threads:\n" + trace);
+                status = 1;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Start the stub of workshop-users-api, answering every token validation with the same user after the latency.
+     * @return the started server.
+     */
+    private HttpServer startUsersApi() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/v1/auth/validate", exchange -> {
+            try {
+                Thread.sleep(validationLatency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = VALIDATION_MESSAGE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    /**
+     * Start the application with the threading model, put it under load and stop it.
+     * @param virtualThreads true to run the requests on virtual threads.
+     * @param usersApiPort the port of the workshop-users-api stub.
+     * @return the result of the measurement.
+     */
+    private Result runApplication(boolean virtualThreads, int usersApiPort) throws Exception {
+        String threads = virtualThreads ? "virtual" : "platform";
+        int port = freePort();
+        Path log = Files.createTempFile("load-test-" + threads + "-", ".log");
+        Process application = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Djdk.tracePinnedThreads=full",
+                "-Dspring.devtools.restart.enabled=false",
+                "-cp", System.getProperty("java.class.path"),
+                WorkshopVehicleApiApplication.class.getName(),
+                "--server.port=" + port,
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.url=jdbc:h2:mem:load;MODE=MySQL;NON_KEYWORDS=YEAR,VALUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--eureka.client.enabled=false",
+                "--spring.cloud.discovery.client.simple.instances.workshop-users-api[0].uri=http://localhost:" + usersApiPort,
+                "--auth.tokenCache.enabled=false",
+                "--auth.usersApi.maxConnections=" + clients,
+                "--auth.usersApi.readTimeout=" + validationLatency.multipliedBy(2).plusSeconds(2),
+                "--vehicle.cache.enabled=false",
+                "--logging.level.org.springframework.security=INFO")
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            URI baseUri = URI.create("http://localhost:" + port);
+            awaitStarted(application, baseUri, log);
+            List<Long> ids = seedVehicles(baseUri);
+            load(baseUri, ids, warmup);
+            Result result = load(baseUri, ids, duration);
+            application.destroy();
+            application.waitFor(30, TimeUnit.SECONDS);
+            return new Result(threads, result.requests(), result.errors(), result.elapsed(), result.latencies(),
+                    pinnedTraces(Files.readAllLines(log)), log);
+        } finally {
+            application.destroyForcibly();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private void awaitStarted(Process application, URI baseUri, Path log) throws Exception {
+        Instant deadline = Instant.now().plus(startupTimeout);
+        HttpRequest health = HttpRequest.newBuilder(baseUri.resolve("/actuator/health")).build();
+        while (Instant.now().isBefore(deadline)) {
+            if (!application.isAlive()) {
+                throw new IllegalStateException("The application stopped while starting, see " + log);
+            }
+            try {
+                if (httpClient.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("The application did not start within " + startupTimeout + ", see " + log);
+    }
+
+    /**
+     * Create the vehicles the clients search for, all at once so that seeding does not wait out the validation
+     * latency once per vehicle.
+     * @return the IDs of the vehicles.
+     */
+    private List<Long> seedVehicles(URI baseUri) throws Exception {
+        List<Future<Long>> created = new ArrayList<>(VEHICLES);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int vehicle = 0; vehicle < VEHICLES; vehicle++) {
+                HttpRequest create = HttpRequest.newBuilder(baseUri.resolve("/api/v1/vehicle"))
+                        .header("Authorization", "Bearer " + token(-1 - vehicle))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(VEHICLE.formatted(vehicle)))
+                        .build();
+                created.add(executor.submit(() -> {
+                    HttpResponse<String> response = httpClient.send(create, HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("Vehicle could not be created: " + response.body());
+                    }
+                    String body = response.body();
+                    int start = body.indexOf("\"id\":") + 5;
+                    return Long.parseLong(body.substring(start, body.indexOf(',', start)).trim());
+                }));
+            }
+        }
+        List<Long> ids = new ArrayList<>(VEHICLES);
+        for (Future<Long> id : created) {
+            ids.add(id.get());
+        }
+        return ids;
+    }
+
+    /**
+     * Send searches by ID from every client, one after another, for the duration.
+     * @return the requests sent, the errors among them and the latency of each.
+     */
+    private Result load(URI baseUri, List<Long> ids, Duration duration) throws Exception {
+        URI uri = baseUri.resolve("/api/v1/vehicle");
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<Future<long[]>> clientLatencies = new ArrayList<>(clients);
+        int[] errors = new int[clients];
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                int clientId = client;
+                clientLatencies.add(executor.submit(() -> {
+                    String authorization = "Bearer " + token(clientId);
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    for (int request = clientId; System.nanoTime() < end; request++) {
+                        HttpRequest search = HttpRequest.newBuilder(uri)
+                                .header("Authorization", authorization)
+                                .header("Content-Type", "application/json")
+                                .method("GET", HttpRequest.BodyPublishers.ofString(
+                                        "{\"id\":\"" + ids.get(request % ids.size()) + "\"}"))
+                                .build();
+                        long sent = System.nanoTime();
+                        try {
+                            if (httpClient.send(search, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                                errors[clientId]++;
+                            }
+                        } catch (IOException e) {
+                            errors[clientId]++;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - sent;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        List<long[]> latencies = new ArrayList<>(clients);
+        for (Future<long[]> client : clientLatencies) {
+            latencies.add(client.get());
+        }
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(null, all.length, Arrays.stream(errors).sum(), elapsed, all, List.of(), null);
+    }
+
+    /**
+     * Build a bearer token shaped like a JWT of workshop-users-api, unique to the client so that no two clients
+     * share a token validation. The signature is never checked, the stub accepts every token.
+     * @param client the index of the client.
+     * @return the token.
+     */
+    private static String token(int client) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"RS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        String claims = encoder.encodeToString(("{\"sub\":\"load\",\"jti\":\"client-" + client + "\",\"exp\":"
+                + Instant.now().plus(Duration.ofHours(1)).getEpochSecond() + "}").getBytes(StandardCharsets.UTF_8));
+        return header + "." + claims + "." + encoder.encodeToString("signature".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Collect the stack traces printed by -Djdk.tracePinnedThreads for virtual threads that blocked while pinned.
+     * Each trace is the name of the carrier thread followed by the indented frames.
+     * @param lines the output of the application.
+     * @return the traces, empty if no virtual thread was pinned.
+     */
+    private static List<String> pinnedTraces(List<String> lines) {
+        List<String> traces = new ArrayList<>();
+        for (int line = 1; line < lines.size(); line++) {
+            if (lines.get(line).contains(PINNED_FRAME)) {
+                StringBuilder trace = new StringBuilder(lines.get(line - 1));
+                for (int frame = line; frame < lines.size() && lines.get(frame).startsWith("    "); frame++) {
+                    trace.append('\n').append(lines.get(frame));
+                }
+                traces.add(trace.toString());
+            }
+        }
+        return traces;
+    }
+
+    private record Result(String threads, int requests, int errors, long elapsed, long[] latencies,
+                          List<String> pinnedTraces, Path log) {
+
+        double throughput() {
+            return requests * 1e9 / elapsed;
+        }
+
+        double percentileMillis(double percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package co.uk.negura.workshop_vehicle_api.benchmark;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatchException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application of JSON Patch and JSON Merge Patch documents to a vehicle, comparing the field by field fast path
+ * with the generic json-patch implementation it falls back to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VehiclePatchBenchmark {
+
+    private VehiclePatchApplier vehiclePatchApplier;
+    private JsonNode fieldLevelJsonPatch;
+    private JsonNode genericJsonPatch;
+    private JsonNode fieldLevelMergePatch;
+    private JsonNode genericMergePatch;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        vehiclePatchApplier = new VehiclePatchApplier(objectMapper);
+        fieldLevelJsonPatch = objectMapper.readTree(BenchmarkFixtures.FIELD_LEVEL_JSON_PATCH);
+        genericJsonPatch = objectMapper.readTree(BenchmarkFixtures.GENERIC_JSON_PATCH);
+        fieldLevelMergePatch = objectMapper.readTree(BenchmarkFixtures.FIELD_LEVEL_MERGE_PATCH);
+        genericMergePatch = objectMapper.readTree(BenchmarkFixtures.GENERIC_MERGE_PATCH);
+    }
+
+    @Benchmark
+    public VehicleEntity jsonPatchFieldLevel() throws JsonPatchException, IOException {
+        VehicleEntity vehicle = BenchmarkFixtures.vehicle();
+        vehiclePatchApplier.applyJsonPatch(fieldLevelJsonPatch, vehicle);
+        return vehicle;
+    }
+
+    @Benchmark
+    public VehicleEntity jsonPatchGeneric() throws JsonPatchException, IOException {
+        VehicleEntity vehicle = BenchmarkFixtures.vehicle();
+        vehiclePatchApplier.applyJsonPatch(genericJsonPatch, vehicle);
+        return vehicle;
+    }
+
+    @Benchmark
+    public VehicleEntity mergePatchFieldLevel() throws JsonPatchException, IOException {
+        VehicleEntity vehicle = BenchmarkFixtures.vehicle();
+        vehiclePatchApplier.applyMergePatch(fieldLevelMergePatch, vehicle);
+        return vehicle;
+    }
+
+    @Benchmark
+    public VehicleEntity mergePatchGeneric() throws JsonPatchException, IOException {
+        VehicleEntity vehicle = BenchmarkFixtures.vehicle();
+        vehiclePatchApplier.applyMergePatch(genericMergePatch, vehicle);
+        return vehicle;
+    }
+}
@@ -0,0 +1,44 @@
+package co.uk.negura.workshop_vehicle_api.benchmark;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization of a vehicle, the work done for every vehicle read or written by the API.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VehicleSerializationBenchmark {
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private VehicleEntity vehicle;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        writer = objectMapper.writerFor(VehicleEntity.class);
+        reader = objectMapper.readerFor(VehicleEntity.class);
+        vehicle = BenchmarkFixtures.vehicle();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(vehicle);
+    }
+
+    @Benchmark
+    public VehicleEntity deserialize() throws JsonProcessingException {
+        return reader.readValue(BenchmarkFixtures.VEHICLE_JSON);
+    }
+}
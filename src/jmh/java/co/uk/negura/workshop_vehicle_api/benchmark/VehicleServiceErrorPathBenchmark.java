@@ -0,0 +1,67 @@
+package co.uk.negura.workshop_vehicle_api.benchmark;
+
+import co.uk.negura.workshop_vehicle_api.service.VehicleCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleListCache;
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import co.uk.negura.workshop_vehicle_api.service.VehicleService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of the error responses of the VehicleService, against an in-memory repository holding the fixture
+ * vehicle and a disabled cache, so the benchmark measures the service and its response maps rather than the database.
+ * None of these paths use the entity manager, which is only needed to stream vehicles, so none is given.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VehicleServiceErrorPathBenchmark {
+
+    private static final Map<String, String> UNKNOWN_REGISTRATION = Map.of("registration", "ZZ99 ZZZ");
+    private static final Map<String, String> UNKNOWN_ID = Map.of("id", "404");
+    private static final Map<String, String> MISSING_KEY = Map.of("colour", "Blue");
+
+    private VehicleService vehicleService;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        vehicleService = new VehicleService(new InMemoryVehicleRepository(BenchmarkFixtures.vehicle()), null,
+                objectMapper, new VehicleCache(false, 1, Duration.ofMinutes(1)), new VehiclePatchApplier(objectMapper),
+                event -> {
+                }, new VehicleListCache(false));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> searchUnknownRegistration() {
+        return vehicleService.searchVehicle(UNKNOWN_REGISTRATION, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> searchUnknownId() {
+        return vehicleService.searchVehicle(UNKNOWN_ID, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> searchWithoutKey() {
+        return vehicleService.searchVehicle(MISSING_KEY, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> deleteUnknownId() {
+        return vehicleService.deleteVehicle(UNKNOWN_ID, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> createDuplicate() {
+        return vehicleService.createVehicle(BenchmarkFixtures.vehicle());
+    }
+}
@@ -0,0 +1,67 @@
+package co.uk.negura.workshop_vehicle_api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Configures the connection pools of the primary MySQL database and, when {@code vehicle.datasource.replica.enabled}
+ * is true, of a read replica. Each pool is a HikariDataSource tuned from {@code spring.datasource.hikari} and
+ * {@code vehicle.datasource.replica} respectively, and Spring Boot binds both to the hikaricp.connections metrics.
+ * <p>
+ * JPA, JDBC and Flyway use a LazyConnectionDataSourceProxy, which only takes a connection from a pool when the first
+ * statement runs. A transaction marked read-only has set its connection read-only by then, so the connection is taken
+ * from the replica, every other connection is taken from the primary. Without a replica the proxy still saves the
+ * pool checkout of a transaction that is answered from a cache without running a statement.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Create the connection pool of the primary database, the one every write goes to.
+     * @param properties the {@code spring.datasource} connection properties.
+     * @return the connection pool of the primary database.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Create the connection pool of the read replica, bound from {@code vehicle.datasource.replica}.
+     * @return the connection pool of the read replica.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "vehicle.datasource.replica.enabled", havingValue = "true")
+    @ConfigurationProperties("vehicle.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        return DataSourceBuilder.create().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Create the DataSource routing read-only transactions to the replica, if there is one, and everything else to the primary.
+     * @param primaryDataSource the connection pool of the primary database.
+     * @param replicaDataSource the connection pool of the read replica, if it is enabled.
+     * @return the DataSource used by JPA, JDBC and Flyway.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(primaryDataSource);
+        replicaDataSource.ifAvailable(dataSource::setReadOnlyDataSource);
+        return dataSource;
+    }
+}
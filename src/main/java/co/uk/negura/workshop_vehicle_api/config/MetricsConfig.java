@@ -0,0 +1,64 @@
+package co.uk.negura.workshop_vehicle_api.config;
+
+import co.uk.negura.workshop_vehicle_api.service.VehicleCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleListCache;
+import co.uk.negura.workshop_vehicle_api.util.TokenRejectionCache;
+import co.uk.negura.workshop_vehicle_api.util.TokenValidationCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Registers the metrics that Spring Boot does not bind on its own.
+ * Endpoint latency (http.server.requests), repository query timers (spring.data.repository.invocations),
+ * outbound HTTP calls (http.client.requests) and the Hikari connection pool gauges (hikaricp.connections.*)
+ * are bound by the actuator auto-configuration.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Bind the counters of the in-process caches, named like the cache metrics Micrometer binds for other caches
+     * so that the same dashboards apply: cache.size, cache.gets with result hit or miss, and cache.evictions.
+     * @param tokenValidationCache the cache of token validation responses.
+     * @param tokenRejectionCache the cache of tokens recently rejected by workshop-users-api.
+     * @param vehicleCache the read-through cache of vehicles.
+     * @param vehicleListCache the cache of the serialized list of vehicles.
+     * @return the binder of the cache metrics.
+     */
+    @Bean
+    public MeterBinder cacheMetrics(TokenValidationCache tokenValidationCache, TokenRejectionCache tokenRejectionCache,
+                                    VehicleCache vehicleCache, VehicleListCache vehicleListCache) {
+        return registry -> {
+            bindCache(registry, "tokenValidation", tokenValidationCache, TokenValidationCache::size,
+                    TokenValidationCache::getHitCount, TokenValidationCache::getMissCount,
+                    TokenValidationCache::getEvictionCount);
+            bindCache(registry, "tokenRejection", tokenRejectionCache, TokenRejectionCache::size,
+                    TokenRejectionCache::getHitCount, TokenRejectionCache::getMissCount,
+                    TokenRejectionCache::getEvictionCount);
+            bindCache(registry, "vehicles", vehicleCache, VehicleCache::size,
+                    VehicleCache::getHitCount, VehicleCache::getMissCount, VehicleCache::getEvictionCount);
+            bindCache(registry, "vehicleList", vehicleListCache, VehicleListCache::size,
+                    VehicleListCache::getHitCount, VehicleListCache::getMissCount, VehicleListCache::getEvictionCount);
+        };
+    }
+
+    private static <C> void bindCache(MeterRegistry registry, String name, C cache, ToDoubleFunction<C> size,
+                                      ToDoubleFunction<C> hits, ToDoubleFunction<C> misses, ToDoubleFunction<C> evictions) {
+        Tags tags = Tags.of("cache", name);
+        Gauge.builder("cache.size", cache, size).tags(tags)
+                .description("The number of entries in the cache").register(registry);
+        FunctionCounter.builder("cache.gets", cache, hits).tags(tags).tag("result", "hit")
+                .description("The number of times a cache lookup returned a cached value").register(registry);
+        FunctionCounter.builder("cache.gets", cache, misses).tags(tags).tag("result", "miss")
+                .description("The number of times a cache lookup found no cached value").register(registry);
+        FunctionCounter.builder("cache.evictions", cache, evictions).tags(tags)
+                .description("The number of entries evicted from the cache").register(registry);
+    }
+}
@@ -1,11 +1,24 @@
 package co.uk.negura.workshop_vehicle_api.controller;
 
+import co.uk.negura.workshop_vehicle_api.model.VehicleBatchRequest;
 import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.model.VehicleSearchCriteria;
+import co.uk.negura.workshop_vehicle_api.service.VehicleChangeService;
+import co.uk.negura.workshop_vehicle_api.service.VehicleImportService;
 import co.uk.negura.workshop_vehicle_api.service.VehicleService;
-import com.github.fge.jsonpatch.JsonPatch;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.Map;
 
 @RestController
@@ -14,8 +27,15 @@ public class VehicleController {
 
     private final VehicleService vehicleService;
 
-    public VehicleController(VehicleService vehicleService) {
+    private final VehicleImportService vehicleImportService;
+
+    private final VehicleChangeService vehicleChangeService;
+
+    public VehicleController(VehicleService vehicleService, VehicleImportService vehicleImportService,
+                             VehicleChangeService vehicleChangeService) {
         this.vehicleService = vehicleService;
+        this.vehicleImportService = vehicleImportService;
+        this.vehicleChangeService = vehicleChangeService;
     }
 
     /**
@@ -29,43 +49,167 @@ public class VehicleController {
     }
 
     /**
-     * Update a vehicle using the ID and the patch request.
+     * Bulk import vehicles from a JSON array, e.g. when onboarding a new dealership.
+     * @param body the request body containing the JSON array of vehicles
+     * @return the response entity containing the summary and per-row results of the import
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importVehiclesJson(InputStream body){
+        return vehicleImportService.importJson(body);
+    }
+
+    /**
+     * Bulk import vehicles from a CSV document with a header row naming the vehicle properties.
+     * @param body the request body containing the CSV document
+     * @return the response entity containing the summary and per-row results of the import
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<?> importVehiclesCsv(InputStream body){
+        return vehicleImportService.importCsv(body);
+    }
+
+    /**
+     * Update a vehicle using the ID and the JSON Patch request.
      * @param ID the ID of the vehicle to be updated
-     * @param patch the patch request containing the details to be updated
+     * @param patch the JSON Patch request containing the details to be updated
+     * @param ifMatch the ETag of the version being updated, the update fails with 412 if the vehicle has changed since
      * @return the response entity containing the updated vehicle details
      */
-    @PatchMapping("/{ID}")
+    @PatchMapping(value = "/{ID}", consumes = {"application/json-patch+json", MediaType.APPLICATION_JSON_VALUE})
     public ResponseEntity<?> updateVehicle(@PathVariable Long ID,
-                                            @RequestBody JsonPatch patch){
-        return vehicleService.updateVehicle(ID, patch);
+                                            @RequestBody JsonNode patch,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return vehicleService.updateVehicle(ID, patch, ifMatch);
+    }
+
+    /**
+     * Update a vehicle using the ID and the JSON Merge Patch request.
+     * @param ID the ID of the vehicle to be updated
+     * @param patch the JSON Merge Patch request containing the details to be updated
+     * @param ifMatch the ETag of the version being updated, the update fails with 412 if the vehicle has changed since
+     * @return the response entity containing the updated vehicle details
+     */
+    @PatchMapping(value = "/{ID}", consumes = "application/merge-patch+json")
+    public ResponseEntity<?> mergeUpdateVehicle(@PathVariable Long ID,
+                                                 @RequestBody JsonNode patch,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return vehicleService.mergeUpdateVehicle(ID, patch, ifMatch);
     }
 
     /**
      * Search for a vehicle using the ID or the registration, can be potentially extended to search for vehicle based on other parameters.
      * @param searchRequest the search request containing the ID or registration of the vehicle to be searched from the database.
+     * @param ifNoneMatch the ETag of the version the client already has, answered with 304 if the vehicle has not changed
      * @return the response entity containing the vehicle details
      */
     @GetMapping()
-    public ResponseEntity<?> searchVehicle(@RequestBody Map<String, String> searchRequest) {
-        return vehicleService.searchVehicle(searchRequest);
+    public ResponseEntity<?> searchVehicle(@RequestBody Map<String, String> searchRequest,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return vehicleService.searchVehicle(searchRequest, ifNoneMatch);
+    }
+
+    /**
+     * Look up many vehicles at once using their IDs and/or registrations, e.g. {@code {"ids": [1, 2], "registrations": ["AB12 CDE"]}}.
+     * @param batchRequest the IDs and registrations of the vehicles to be looked up from the database.
+     * @param fields the comma separated vehicle properties to return, e.g. {@code registration,make,model}, omitted for every property
+     * @return the response entity containing the vehicles found, in the order requested, and the IDs and registrations not found
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> batchSearchVehicles(@RequestBody VehicleBatchRequest batchRequest,
+                                                 @RequestParam(required = false) String fields){
+        return vehicleService.batchSearchVehicles(batchRequest, fields);
+    }
+
+    /**
+     * Search for vehicles using query string filters on make, model, fuel type, transmission, body type, VIN, and year,
+     * mileage and engine size ranges. Results are paginated and can be sorted,
+     * e.g. {@code ?make=Ford&yearFrom=2015&mileageTo=60000&page=0&size=20&sort=year,desc}.
+     * @param criteria the filters bound from the query string
+     * @param pageable the page, size and sort order bound from the query string
+     * @param fields the comma separated vehicle properties to return, e.g. {@code registration,make,model}, omitted for every property
+     * @return the response entity containing the page of matching vehicles
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchVehicles(VehicleSearchCriteria criteria,
+                                            @PageableDefault(size = 20, sort = "id", direction = Sort.Direction.ASC) Pageable pageable,
+                                            @RequestParam(required = false) String fields){
+        return vehicleService.searchVehicles(criteria, pageable, fields);
     }
 
     /**
      * Get all vehicles from the database.
+     * @param fields the comma separated vehicle properties to return, e.g. {@code registration,make,model}, omitted for every property
+     * @param acceptEncoding the content codings the client accepts, the full list is sent gzipped if gzip is one of them
      * @return the response entity containing all the vehicle details
      */
     @GetMapping("/all")
-    public ResponseEntity<?> getAllVehicles(){
-        return vehicleService.getAllVehicles();
+    public ResponseEntity<?> getAllVehicles(@RequestParam(required = false) String fields,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        return vehicleService.getAllVehicles(fields, acceptEncoding);
+    }
+
+    /**
+     * Get a page of vehicles, ordered by ID, starting after the provided cursor.
+     * @param after the ID of the last vehicle of the previous page, omitted for the first page
+     * @param size the number of vehicles per page, omitted for the default page size
+     * @param fields the comma separated vehicle properties to return, e.g. {@code registration,make,model}, omitted for every property
+     * @return the response entity containing the page of vehicles and the cursor of the next page
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getVehiclePage(@RequestParam(required = false) Long after,
+                                            @RequestParam(required = false) Integer size,
+                                            @RequestParam(required = false) String fields){
+        return vehicleService.getVehiclePage(after, size, fields);
+    }
+
+    /**
+     * Get the changes made to vehicles after the provided cursor, so that other services can sync incrementally
+     * instead of polling the full list.
+     * @param after the sequence of the last change already seen, i.e. the nextCursor of the previous response, omitted to start from the oldest change kept
+     * @param size the maximum number of changes to return, omitted for the default page size
+     * @return the response entity containing the changes, oldest first, and the cursor of the next request
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getVehicleChanges(@RequestParam(required = false) Long after,
+                                               @RequestParam(required = false) Integer size){
+        return vehicleChangeService.getVehicleChanges(after, size);
+    }
+
+    /**
+     * Get the vehicles changed, created or deleted after the watermark of the client, one page at a time,
+     * e.g. {@code ?since=2024-03-01T10:15:30.123456Z&afterId=42}.
+     * @param since the nextSince of the previous response, omitted for a first sync
+     * @param afterId the nextAfterId of the previous response, omitted for a first sync
+     * @param size the maximum number of changes to return, omitted for the default page size
+     * @return the response entity containing the changed vehicles, the IDs of the deleted vehicles and the next watermark
+     */
+    @GetMapping("/delta")
+    public ResponseEntity<?> getVehicleDelta(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since,
+                                             @RequestParam(required = false) Long afterId,
+                                             @RequestParam(required = false) Integer size){
+        return vehicleChangeService.getVehicleDelta(since, afterId, size);
+    }
+
+    /**
+     * Stream all vehicles as newline delimited JSON, writing each vehicle as soon as it is read from the database.
+     * @return the response entity streaming the vehicle details
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVehicles(){
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(vehicleService::streamAllVehicles);
     }
 
     /**
      * Delete a vehicle using the ID or the registration.
      * @param searchRequest the search request containing the ID or registration of the vehicle to be deleted from the database.
+     * @param ifMatch the ETag of the version being deleted, the deletion fails with 412 if the vehicle has changed since
      * @return the response entity containing the status of the deletion
      */
     @DeleteMapping()
-    public ResponseEntity<?> deleteVehicle(@RequestBody Map<String, String> searchRequest){
-        return vehicleService.deleteVehicle(searchRequest);
+    public ResponseEntity<?> deleteVehicle(@RequestBody Map<String, String> searchRequest,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return vehicleService.deleteVehicle(searchRequest, ifMatch);
     }
 }
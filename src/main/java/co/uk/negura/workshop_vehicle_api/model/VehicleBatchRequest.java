@@ -0,0 +1,11 @@
+package co.uk.negura.workshop_vehicle_api.model;
+
+import java.util.List;
+
+/**
+ * The vehicles to look up in a single batch request, by ID and/or by registration.
+ * @param ids the IDs of the vehicles, may be null
+ * @param registrations the registrations of the vehicles, in any case and spacing, may be null
+ */
+public record VehicleBatchRequest(List<Long> ids, List<String> registrations) {
+}
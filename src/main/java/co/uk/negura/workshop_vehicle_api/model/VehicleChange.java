@@ -0,0 +1,27 @@
+package co.uk.negura.workshop_vehicle_api.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+/**
+ * A committed change to a vehicle, as published to the change sink and returned by the changes endpoint.
+ * @param sequence the position of the change in the outbox, the cursor to sync from
+ * @param type the kind of change
+ * @param vehicleId the ID of the changed vehicle
+ * @param registrationKey the normalized registration of the vehicle after the change, or before it for a deletion
+ * @param vehicle the JSON form of the vehicle after the change, null for a deletion
+ * @param occurredAt when the change was made
+ */
+public record VehicleChange(Long sequence,
+                            VehicleChangedEvent.Type type,
+                            Long vehicleId,
+                            String registrationKey,
+                            @JsonRawValue String vehicle,
+                            Instant occurredAt) {
+
+    public static VehicleChange from(VehicleOutboxEvent event) {
+        return new VehicleChange(event.getId(), event.getType(), event.getVehicleId(), event.getRegistrationKey(),
+                event.getPayload(), event.getCreatedAt());
+    }
+}
@@ -0,0 +1,17 @@
+package co.uk.negura.workshop_vehicle_api.model;
+
+/**
+ * Published by the VehicleService whenever a vehicle is created, updated or deleted,
+ * so that caches and other listeners can react to the change once it is committed.
+ * @param type the kind of change
+ * @param id the ID of the changed vehicle
+ * @param registrationKey the normalized registration of the vehicle after the change, or before it for a deletion
+ */
+public record VehicleChangedEvent(Type type, Long id, String registrationKey) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
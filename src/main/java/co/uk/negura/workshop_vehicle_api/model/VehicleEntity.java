@@ -1,10 +1,41 @@
 package co.uk.negura.workshop_vehicle_api.model;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 @Entity
-@Table(name = "vehicles")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vehicles")
+@SQLRestriction("deleted_at is null")
+@Table(name = "vehicles", indexes = {
+        @Index(name = "idx_vehicles_make_model", columnList = "make, model"),
+        @Index(name = "idx_vehicles_fuel_type", columnList = "fuelType"),
+        @Index(name = "idx_vehicles_transmission", columnList = "transmission"),
+        @Index(name = "idx_vehicles_body_type", columnList = "bodyType"),
+        @Index(name = "idx_vehicles_year", columnList = "year"),
+        @Index(name = "idx_vehicles_mileage", columnList = "mileage"),
+        @Index(name = "idx_vehicles_engine_size", columnList = "engineSize"),
+        @Index(name = "idx_vehicles_updated_at", columnList = "updatedAt, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_vehicles_registration_key", columnNames = "registrationKey"),
+        @UniqueConstraint(name = "uk_vehicles_vin_key", columnNames = "vinKey")
+})
 public class VehicleEntity {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final BigDecimal MAX_ENGINE_SIZE = new BigDecimal("99.9");
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -18,14 +49,33 @@ public class VehicleEntity {
     private String colourCode;
     private boolean isDrivable;
     private String VIN;
-    private String engineSize;
+    @Column(precision = 3, scale = 1)
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private BigDecimal engineSize;
     private String fuelType;
     private String transmission;
     private String bodyType;
-    private String year;
-    private String mileage;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Integer year;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Integer mileage;
+    @JsonIgnore
+    private String registrationKey;
+    @JsonIgnore
+    private String vinKey;
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+    @Column(updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant createdAt;
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant updatedAt;
+    @JsonIgnore
+    private Instant deletedAt;
 
-    public VehicleEntity(Long id, String registration, String make, String model, String colour, String colourCode, boolean isDrivable, String VIN, String engineSize, String fuelType, String transmission, String bodyType, String year, String mileage) {
+    public VehicleEntity(Long id, String registration, String make, String model, String colour, String colourCode, boolean isDrivable, String VIN, BigDecimal engineSize, String fuelType, String transmission, String bodyType, Integer year, Integer mileage) {
         this.id = id;
         this.registration = registration;
         this.make = make;
@@ -34,7 +84,7 @@ public class VehicleEntity {
         this.colourCode = colourCode;
         this.isDrivable = isDrivable;
         this.VIN = VIN;
-        this.engineSize = engineSize;
+        this.engineSize = litres(engineSize);
         this.fuelType = fuelType;
         this.transmission = transmission;
         this.bodyType = bodyType;
@@ -45,6 +95,80 @@ public class VehicleEntity {
     public VehicleEntity() {
     }
 
+    /**
+     * Normalize a registration or VIN into the key it is looked up and de-duplicated by,
+     * uppercase with all whitespace removed, so "ab12 cde" and "AB12CDE" are the same vehicle.
+     * @param value the registration or VIN to normalize
+     * @return the normalized key, or null if the value is null or blank
+     */
+    public static String normalizeKey(String value) {
+        if (value == null) {
+            return null;
+        }
+        String key = WHITESPACE.matcher(value).replaceAll("").toUpperCase(Locale.ROOT);
+        return key.isEmpty() ? null : key;
+    }
+
+    /**
+     * Round an engine size to the one decimal place of litres the column stores, e.g. 1.598 to 1.6.
+     * @param engineSize the engine size in litres
+     * @return the rounded engine size, or null if the engine size is null
+     */
+    private static BigDecimal litres(BigDecimal engineSize) {
+        return engineSize == null ? null : engineSize.setScale(1, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Check the numeric specifications fit their columns: an engine size of 0 to 99.9 litres once rounded
+     * to the one decimal place of DECIMAL(3, 1), and a year and mileage that are not negative.
+     * @param engineSize the engine size in litres, may be null
+     * @param year the year of manufacture, may be null
+     * @param mileage the mileage, may be null
+     * @return the message for the first specification out of range, or null if they all fit
+     */
+    public static String specificationError(BigDecimal engineSize, Integer year, Integer mileage) {
+        BigDecimal litres = litres(engineSize);
+        if (litres != null && (litres.signum() < 0 || litres.compareTo(MAX_ENGINE_SIZE) > 0)) {
+            return "Vehicle engineSize must be between 0 and 99.9 litres";
+        }
+        if (year != null && year < 0) {
+            return "Vehicle year must not be negative";
+        }
+        if (mileage != null && mileage < 0) {
+            return "Vehicle mileage must not be negative";
+        }
+        return null;
+    }
+
+    /**
+     * Keep the lookup keys in sync with the registration and VIN, and stamp the change, before the vehicle is written.
+     * A deleted vehicle gives up its keys, so its registration and VIN can be used by a new vehicle.
+     * Timestamps are kept to the microsecond, the precision of the columns, so a watermark read back matches exactly.
+     */
+    @PrePersist
+    @PreUpdate
+    void prepareForWrite() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        if (createdAt == null) {
+            this.createdAt = now;
+        }
+        this.updatedAt = now;
+        this.registrationKey = deletedAt == null ? normalizeKey(registration) : null;
+        this.vinKey = deletedAt == null ? normalizeKey(VIN) : null;
+    }
+
+    /**
+     * Turn the vehicle into a tombstone, hidden from every read but the delta sync until it is purged.
+     */
+    public void markDeleted() {
+        this.deletedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    @JsonIgnore
+    public boolean isDeleted() {
+        return deletedAt != null;
+    }
+
     public Long getId() {
         return id;
     }
@@ -105,12 +229,12 @@ public class VehicleEntity {
         this.VIN = VIN;
     }
 
-    public String getEngineSize() {
+    public BigDecimal getEngineSize() {
         return engineSize;
     }
 
-    public void setEngineSize(String engineSize) {
-        this.engineSize = engineSize;
+    public void setEngineSize(BigDecimal engineSize) {
+        this.engineSize = litres(engineSize);
     }
 
     public String getFuelType() {
@@ -137,19 +261,43 @@ public class VehicleEntity {
         this.bodyType = bodyType;
     }
 
-    public String getYear() {
+    public Integer getYear() {
         return year;
     }
 
-    public void setYear(String year) {
+    public void setYear(Integer year) {
         this.year = year;
     }
 
-    public String getMileage() {
+    public Integer getMileage() {
         return mileage;
     }
 
-    public void setMileage(String mileage) {
+    public void setMileage(Integer mileage) {
         this.mileage = mileage;
     }
+
+    public String getRegistrationKey() {
+        return registrationKey;
+    }
+
+    public String getVinKey() {
+        return vinKey;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
 }
@@ -0,0 +1,92 @@
+package co.uk.negura.workshop_vehicle_api.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The vehicle properties a read can be limited to with the {@code fields} parameter, e.g. {@code ?fields=registration,make,model,colour}.
+ * Properties are named as in the JSON form of a vehicle and mapped to the VehicleEntity attributes they are selected from.
+ */
+public final class VehicleFields {
+
+    private static final Map<String, String> ATTRIBUTES;
+
+    private static final Set<String> NUMBERS_AS_TEXT = Set.of("engineSize", "year", "mileage");
+
+    static {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("id", "id");
+        attributes.put("registration", "registration");
+        attributes.put("make", "make");
+        attributes.put("model", "model");
+        attributes.put("colour", "colour");
+        attributes.put("colourCode", "colourCode");
+        attributes.put("drivable", "isDrivable");
+        attributes.put("vin", "VIN");
+        attributes.put("engineSize", "engineSize");
+        attributes.put("fuelType", "fuelType");
+        attributes.put("transmission", "transmission");
+        attributes.put("bodyType", "bodyType");
+        attributes.put("year", "year");
+        attributes.put("mileage", "mileage");
+        attributes.put("version", "version");
+        ATTRIBUTES = Collections.unmodifiableMap(attributes);
+    }
+
+    private VehicleFields() {
+    }
+
+    /**
+     * Parse the comma separated {@code fields} parameter of a read. The ID is always selected, first.
+     * @param fields the comma separated property names, may be null.
+     * @return the selected property names in the order requested, or null if no fields were requested.
+     * @throws IllegalArgumentException if a property name is not a vehicle property.
+     */
+    public static List<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!ATTRIBUTES.containsKey(name)) {
+                throw new IllegalArgumentException("Bad Request, unknown vehicle field " + name);
+            }
+            selected.add(name);
+        }
+        return new ArrayList<>(selected);
+    }
+
+    /**
+     * Get the VehicleEntity attribute a property is selected from.
+     * @param field the property name, or the name of an attribute that is not part of the JSON form, e.g. registrationKey.
+     * @return the attribute name.
+     */
+    public static String attribute(String field) {
+        return ATTRIBUTES.getOrDefault(field, field);
+    }
+
+    /**
+     * Get the value of a property as it appears in the JSON form of a vehicle. The engine size, year and mileage are
+     * stored as numbers but written as strings, so a projected vehicle matches the full one.
+     * @param field the property name.
+     * @param value the value selected from the attribute of the property.
+     * @return the value to write.
+     */
+    public static Object jsonValue(String field, Object value) {
+        if (value == null || !NUMBERS_AS_TEXT.contains(field)) {
+            return value;
+        }
+        return value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+    }
+}
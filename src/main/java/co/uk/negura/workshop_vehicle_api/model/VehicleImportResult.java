@@ -0,0 +1,18 @@
+package co.uk.negura.workshop_vehicle_api.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of importing a single row of a bulk vehicle import.
+ * @param row the 1-based position of the row in the imported document
+ * @param registration the registration of the vehicle in the row, if any
+ * @param status created, duplicate or invalid
+ * @param message the reason the row was not created, null if it was created
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record VehicleImportResult(int row, String registration, String status, String message) {
+
+    public static final String CREATED = "created";
+    public static final String DUPLICATE = "duplicate";
+    public static final String INVALID = "invalid";
+}
@@ -0,0 +1,75 @@
+package co.uk.negura.workshop_vehicle_api.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+/**
+ * A change to a vehicle written to the outbox table in the same transaction as the change itself,
+ * so that a change is published if and only if it was committed.
+ * The ID orders the changes and is the cursor consumers sync from.
+ */
+@Entity
+@Table(name = "vehicle_outbox", indexes = {
+        @Index(name = "idx_vehicle_outbox_published_at", columnList = "publishedAt")
+})
+public class VehicleOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 16)
+    private VehicleChangedEvent.Type type;
+    @Column(nullable = false)
+    private Long vehicleId;
+    private String registrationKey;
+    @Column(length = 1_000_000)
+    private String payload;
+    @Column(nullable = false)
+    private Instant createdAt;
+    private Instant publishedAt;
+
+    public VehicleOutboxEvent(VehicleChangedEvent.Type type, Long vehicleId, String registrationKey, String payload,
+                              Instant createdAt) {
+        this.type = type;
+        this.vehicleId = vehicleId;
+        this.registrationKey = registrationKey;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public VehicleOutboxEvent() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public VehicleChangedEvent.Type getType() {
+        return type;
+    }
+
+    public Long getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getRegistrationKey() {
+        return registrationKey;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+}
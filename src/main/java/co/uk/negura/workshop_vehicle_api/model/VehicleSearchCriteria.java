@@ -0,0 +1,33 @@
+package co.uk.negura.workshop_vehicle_api.model;
+
+import java.math.BigDecimal;
+
+/**
+ * The optional filters of a vehicle search, bound from the query string of the search request.
+ * Every filter that is provided must match, filters that are null or blank are ignored.
+ * @param make the make of the vehicle
+ * @param model the model of the vehicle
+ * @param fuelType the fuel type of the vehicle
+ * @param transmission the transmission of the vehicle
+ * @param bodyType the body type of the vehicle
+ * @param yearFrom the earliest year of the vehicle, inclusive
+ * @param yearTo the latest year of the vehicle, inclusive
+ * @param mileageFrom the lowest mileage of the vehicle, inclusive
+ * @param mileageTo the highest mileage of the vehicle, inclusive
+ * @param engineSizeFrom the smallest engine size of the vehicle in litres, inclusive
+ * @param engineSizeTo the largest engine size of the vehicle in litres, inclusive
+ * @param vin the VIN of the vehicle
+ */
+public record VehicleSearchCriteria(String make,
+                                    String model,
+                                    String fuelType,
+                                    String transmission,
+                                    String bodyType,
+                                    Integer yearFrom,
+                                    Integer yearTo,
+                                    Integer mileageFrom,
+                                    Integer mileageTo,
+                                    BigDecimal engineSizeFrom,
+                                    BigDecimal engineSizeTo,
+                                    String vin) {
+}
@@ -0,0 +1,86 @@
+package co.uk.negura.workshop_vehicle_api.reactive;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.ServerAuthenticationConverter;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    private final ReactiveTokenValidator reactiveTokenValidator;
+
+    public ReactiveSecurityConfig(ReactiveTokenValidator reactiveTokenValidator) {
+        this.reactiveTokenValidator = reactiveTokenValidator;
+    }
+
+    /**
+     * This method is used to configure the reactive security filter chain, with the same rules as the servlet SecurityConfig.
+     * The bearer token is validated by the ReactiveTokenValidator inside the AuthenticationWebFilter, so the validation
+     * call is composed into the reactive chain of the request. The security context is not stored between requests.
+     * @param http The ServerHttpSecurity object used to configure the security filter chain.
+     * @return The SecurityWebFilterChain object representing the security filter chain configuration.
+     */
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        AuthenticationWebFilter authenticationFilter = new AuthenticationWebFilter(authenticationManager());
+        authenticationFilter.setServerAuthenticationConverter(bearerTokenConverter());
+        authenticationFilter.setSecurityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling(exceptionHandling -> exceptionHandling
+                        .accessDeniedHandler((exchange, denied) -> {
+                            exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+                            byte[] body = "Access Denied: You do not have the required authority to perform this action"
+                                    .getBytes(StandardCharsets.UTF_8);
+                            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+                        }))
+                .addFilterAt(authenticationFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .authorizeExchange(authorize -> authorize
+                        .pathMatchers(HttpMethod.GET, "/actuator/health", "/actuator/prometheus").permitAll()
+                        .pathMatchers(HttpMethod.POST, "/api/v1/vehicle").hasAuthority("USER_DETAILS_WRITE")
+                        .pathMatchers(HttpMethod.PATCH, "/api/v1/vehicle/{ID}").hasAuthority("USER_DETAILS_WRITE")
+                        .pathMatchers(HttpMethod.GET, "/api/v1/vehicle").hasAuthority("USER_DETAILS_READ")
+                        .pathMatchers(HttpMethod.GET, "/api/v1/vehicle/all", "/api/v1/vehicle/page", "/api/v1/vehicle/stream").hasAuthority("USER_DETAILS_READ")
+                        .pathMatchers(HttpMethod.DELETE, "/api/v1/vehicle").hasAuthority("USER_DETAILS_DELETE")
+                        .anyExchange().authenticated())
+                .build();
+    }
+
+    /**
+     * Authenticates the bearer token carried as the credentials of the authentication request.
+     * @return the authentication manager validating bearer tokens.
+     */
+    private ReactiveAuthenticationManager authenticationManager() {
+        return authentication -> reactiveTokenValidator.validate((String) authentication.getCredentials())
+                .map(userDetails -> UsernamePasswordAuthenticationToken.authenticated(
+                        userDetails, null, userDetails.getAuthorities()));
+    }
+
+    /**
+     * Extracts the JWT token from the Authorization header, requests without a bearer token are left unauthenticated.
+     * @return the converter of the request to an authentication request.
+     */
+    private ServerAuthenticationConverter bearerTokenConverter() {
+        return exchange -> Mono.justOrEmpty(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+                .filter(header -> header.startsWith("Bearer "))
+                .map(header -> UsernamePasswordAuthenticationToken.unauthenticated(null, header.substring(7)));
+    }
+}
@@ -0,0 +1,61 @@
+package co.uk.negura.workshop_vehicle_api.reactive;
+
+import co.uk.negura.workshop_vehicle_api.security.VehiclePrincipal;
+import co.uk.negura.workshop_vehicle_api.util.TokenValidationCache;
+import co.uk.negura.workshop_vehicle_api.util.UsersApiClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Validates bearer tokens against workshop-users-api as part of the reactive chain of the request,
+ * so no thread is blocked while the validation is in flight. Calls go through the UsersApiClient,
+ * with the same load balancing, timeouts, retries and circuit breaker as the servlet application.
+ * Successful validations are cached in the TokenValidationCache with the VehiclePrincipal read from them,
+ * the same way as in the servlet application.
+ */
+@Component
+public class ReactiveTokenValidator {
+
+    private final UsersApiClient usersApiClient;
+
+    private final TokenValidationCache tokenValidationCache;
+
+    @Value("${auth.validateTokenApiUrl}")
+    private String validateTokenApiUrl;
+
+    public ReactiveTokenValidator(UsersApiClient usersApiClient, TokenValidationCache tokenValidationCache) {
+        this.usersApiClient = usersApiClient;
+        this.tokenValidationCache = tokenValidationCache;
+    }
+
+    /**
+     * Validates the bearer token and reads the user details of the validation response.
+     * @param bearerToken the bearer token to validate
+     * @return the details of the user the token was issued to, or an AuthenticationException if the token is
+     * rejected or could not be validated
+     */
+    public Mono<UserDetails> validate(String bearerToken) {
+        ResponseEntity<?> cachedResponse = tokenValidationCache.get(bearerToken);
+        if (cachedResponse != null && cachedResponse.getBody() instanceof VehiclePrincipal principal) {
+            return Mono.just(principal);
+        }
+        return usersApiClient.get(validateTokenApiUrl, bearerToken)
+                .onErrorMap(e -> new AuthenticationServiceException("Error occurred while validating token", e))
+                .flatMap(responseEntity -> {
+                    if (!responseEntity.getStatusCode().is2xxSuccessful()) {
+                        return Mono.error(new BadCredentialsException("Token rejected by workshop-users-api"));
+                    }
+                    return Mono.<UserDetails>fromCallable(() -> {
+                                VehiclePrincipal principal = VehiclePrincipal.fromValidationMessage(responseEntity.getBody());
+                                tokenValidationCache.put(bearerToken, new ResponseEntity<>(principal, responseEntity.getStatusCode()));
+                                return principal;
+                            })
+                            .onErrorMap(e -> new AuthenticationServiceException("Error reading the token validation response", e));
+                });
+    }
+}
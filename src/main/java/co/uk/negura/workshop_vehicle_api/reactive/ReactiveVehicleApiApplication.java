@@ -0,0 +1,30 @@
+package co.uk.negura.workshop_vehicle_api.reactive;
+
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import co.uk.negura.workshop_vehicle_api.util.TokenValidationCache;
+import co.uk.negura.workshop_vehicle_api.util.UsersApiClient;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Non-blocking variant of the vehicle API, served by WebFlux on a small fixed number of event loop threads
+ * and backed by R2DBC instead of JPA. It runs with the {@code reactive} profile, which configures the R2DBC
+ * connection to the same {@code vehicles} table as the servlet application.
+ */
+@SpringBootApplication(exclude = {DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+        HibernateJpaAutoConfiguration.class})
+@Import({VehiclePatchApplier.class, TokenValidationCache.class, UsersApiClient.class})
+public class ReactiveVehicleApiApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveVehicleApiApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .profiles("reactive")
+                .run(args);
+    }
+}
@@ -0,0 +1,115 @@
+package co.uk.negura.workshop_vehicle_api.reactive;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/vehicle")
+public class ReactiveVehicleController {
+
+    private final ReactiveVehicleService vehicleService;
+
+    public ReactiveVehicleController(ReactiveVehicleService vehicleService) {
+        this.vehicleService = vehicleService;
+    }
+
+    /**
+     * Create a new vehicle and save the vehicle details.
+     * @param vehicleEntity the vehicle details to be saved
+     * @return the response entity containing the vehicle details
+     */
+    @PostMapping()
+    public Mono<ResponseEntity<?>> createVehicle(@RequestBody VehicleEntity vehicleEntity){
+        return vehicleService.createVehicle(vehicleEntity);
+    }
+
+    /**
+     * Update a vehicle using the ID and the JSON Patch request.
+     * @param ID the ID of the vehicle to be updated
+     * @param patch the JSON Patch request containing the details to be updated
+     * @param ifMatch the ETag of the version being updated, the update fails with 412 if the vehicle has changed since
+     * @return the response entity containing the updated vehicle details
+     */
+    @PatchMapping(value = "/{ID}", consumes = {"application/json-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public Mono<ResponseEntity<?>> updateVehicle(@PathVariable Long ID,
+                                                 @RequestBody JsonNode patch,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return vehicleService.patchVehicle(ID, patch, false, ifMatch);
+    }
+
+    /**
+     * Update a vehicle using the ID and the JSON Merge Patch request.
+     * @param ID the ID of the vehicle to be updated
+     * @param patch the JSON Merge Patch request containing the details to be updated
+     * @param ifMatch the ETag of the version being updated, the update fails with 412 if the vehicle has changed since
+     * @return the response entity containing the updated vehicle details
+     */
+    @PatchMapping(value = "/{ID}", consumes = "application/merge-patch+json")
+    public Mono<ResponseEntity<?>> mergeUpdateVehicle(@PathVariable Long ID,
+                                                      @RequestBody JsonNode patch,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return vehicleService.patchVehicle(ID, patch, true, ifMatch);
+    }
+
+    /**
+     * Search for a vehicle using the ID or the registration.
+     * @param searchRequest the search request containing the ID or registration of the vehicle to be searched from the database.
+     * @param ifNoneMatch the ETag of the version the client already has, answered with 304 if the vehicle has not changed
+     * @return the response entity containing the vehicle details
+     */
+    @GetMapping()
+    public Mono<ResponseEntity<?>> searchVehicle(@RequestBody Map<String, String> searchRequest,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return vehicleService.searchVehicle(searchRequest, ifNoneMatch);
+    }
+
+    /**
+     * Get all vehicles from the database.
+     * @return the response entity containing all the vehicle details
+     */
+    @GetMapping("/all")
+    public Mono<ResponseEntity<?>> getAllVehicles(){
+        return vehicleService.getAllVehicles();
+    }
+
+    /**
+     * Get a page of vehicles, ordered by ID, starting after the provided cursor.
+     * @param after the ID of the last vehicle of the previous page, omitted for the first page
+     * @param size the number of vehicles per page, omitted for the default page size
+     * @return the response entity containing the page of vehicles and the cursor of the next page
+     */
+    @GetMapping("/page")
+    public Mono<ResponseEntity<?>> getVehiclePage(@RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) Integer size){
+        return vehicleService.getVehiclePage(after, size);
+    }
+
+    /**
+     * Stream all vehicles as newline delimited JSON, writing each vehicle as soon as it is read from the database.
+     * @return the vehicle details
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<VehicleRow> streamVehicles(){
+        return vehicleService.streamAllVehicles();
+    }
+
+    /**
+     * Delete a vehicle using the ID or the registration.
+     * @param searchRequest the search request containing the ID or registration of the vehicle to be deleted from the database.
+     * @param ifMatch the ETag of the version being deleted, the deletion fails with 412 if the vehicle has changed since
+     * @return the response entity containing the status of the deletion
+     */
+    @DeleteMapping()
+    public Mono<ResponseEntity<?>> deleteVehicle(@RequestBody Map<String, String> searchRequest,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return vehicleService.deleteVehicle(searchRequest, ifMatch);
+    }
+}
@@ -0,0 +1,6 @@
+package co.uk.negura.workshop_vehicle_api.reactive;
+
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+public interface ReactiveVehicleOutboxRepository extends R2dbcRepository<VehicleOutboxRow, Long> {
+}
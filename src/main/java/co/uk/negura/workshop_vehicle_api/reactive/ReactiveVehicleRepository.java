@@ -0,0 +1,40 @@
+package co.uk.negura.workshop_vehicle_api.reactive;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveVehicleRepository extends R2dbcRepository<VehicleRow, Long> {
+
+    /**
+     * Find a vehicle by its normalized registration, using the unique index on the registration key.
+     * @param registrationKey the normalized registration, see VehicleEntity.normalizeKey.
+     * @return the vehicle, or empty if it does not exist.
+     */
+    Mono<VehicleRow> findByRegistrationKey(String registrationKey);
+
+    /**
+     * Find a vehicle by its ID, unless it has been deleted.
+     * @param id the ID of the vehicle.
+     * @return the vehicle, or empty if it does not exist or is a tombstone.
+     */
+    @Query("SELECT * FROM vehicles WHERE id = :id AND deleted_at IS NULL")
+    Mono<VehicleRow> findLiveById(Long id);
+
+    /**
+     * Find every vehicle that has not been deleted, ordered by ID.
+     * @return the vehicles.
+     */
+    @Query("SELECT * FROM vehicles WHERE deleted_at IS NULL ORDER BY id")
+    Flux<VehicleRow> findAllLive();
+
+    /**
+     * Find the next page of vehicles after the cursor, ordered by ID, using the primary key index.
+     * @param id the ID of the last vehicle of the previous page.
+     * @param size the maximum number of vehicles to return.
+     * @return the vehicles with an ID greater than the cursor.
+     */
+    @Query("SELECT * FROM vehicles WHERE id > :id AND deleted_at IS NULL ORDER BY id LIMIT :size")
+    Flux<VehicleRow> findPageAfter(Long id, int size);
+}
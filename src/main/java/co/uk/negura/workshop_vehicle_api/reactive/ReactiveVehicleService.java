@@ -0,0 +1,293 @@
+package co.uk.negura.workshop_vehicle_api.reactive;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import co.uk.negura.workshop_vehicle_api.util.ETagUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatchException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of the VehicleService, returning the same response bodies and status codes.
+ * Every database call is an R2DBC call, so no thread waits on the database while a request is in flight.
+ * Every write commits its change to the outbox in the same transaction, as the VehicleOutboxWriter does for the
+ * servlet application, so consumers of the outbox see the changes made through either variant.
+ */
+@Service
+public class ReactiveVehicleService {
+
+    private final ReactiveVehicleRepository vehicleRepository;
+
+    private final ReactiveVehicleOutboxRepository vehicleOutboxRepository;
+
+    private final VehiclePatchApplier vehiclePatchApplier;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionalOperator transactionalOperator;
+
+    @Value("${vehicle.pagination.defaultPageSize:100}")
+    private int defaultPageSize;
+
+    @Value("${vehicle.pagination.maxPageSize:1000}")
+    private int maxPageSize;
+
+    public ReactiveVehicleService(ReactiveVehicleRepository vehicleRepository,
+                                  ReactiveVehicleOutboxRepository vehicleOutboxRepository,
+                                  VehiclePatchApplier vehiclePatchApplier, ObjectMapper objectMapper,
+                                  ReactiveTransactionManager transactionManager) {
+        this.vehicleRepository = vehicleRepository;
+        this.vehicleOutboxRepository = vehicleOutboxRepository;
+        this.vehiclePatchApplier = vehiclePatchApplier;
+        this.objectMapper = objectMapper;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    /**
+     * Save a new vehicle, duplicates are detected by the unique indexes on the normalized registration and VIN.
+     * The vehicle and its outbox change are committed in one transaction.
+     * @param vehicleEntity the vehicle details to be saved.
+     * @return ResponseEntity with the status of the request.
+     */
+    public Mono<ResponseEntity<?>> createVehicle(VehicleEntity vehicleEntity) {
+        String specificationError = VehicleEntity.specificationError(
+                vehicleEntity.getEngineSize(), vehicleEntity.getYear(), vehicleEntity.getMileage());
+        if (specificationError != null) {
+            return Mono.just(errorResponse(HttpStatus.BAD_REQUEST, specificationError));
+        }
+        return vehicleRepository.save(VehicleRow.from(vehicleEntity, null, null, null))
+                .flatMap(vehicle -> writeChange(VehicleChangedEvent.Type.CREATED, vehicle, vehicle.registrationKey()))
+                .as(transactionalOperator::transactional)
+                .map(ReactiveVehicleService::okResponse)
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(errorResponse(HttpStatus.BAD_REQUEST,
+                        isDuplicateVehicle(e) ? "Vehicle already exists" : "Error creating vehicle, check the request body.")));
+    }
+
+    /**
+     * Search for a vehicle using the registration or ID, answering 304 Not Modified if the If-None-Match header
+     * already matches the version of the vehicle.
+     * @param searchRequest Map containing the search parameters.
+     * @param ifNoneMatch the If-None-Match header of the request, may be null.
+     * @return ResponseEntity with the status of the request.
+     */
+    public Mono<ResponseEntity<?>> searchVehicle(Map<String, String> searchRequest, String ifNoneMatch) {
+        return findVehicle(searchRequest)
+                .flatMap(found -> found.error() != null ? Mono.just(found.error()) : Mono.just(found.vehicle())
+                        .map(vehicle -> {
+                            String eTag = ETagUtil.toETag(vehicle.version());
+                            if (ETagUtil.ifNoneMatchMatches(ifNoneMatch, eTag)) {
+                                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                            }
+                            return okResponse(vehicle);
+                        }));
+    }
+
+    /**
+     * Update a vehicle with a JSON Patch, or a JSON Merge Patch, rejecting the update with 412 Precondition Failed
+     * if the If-Match header does not match the current version or the vehicle changed while it was being patched.
+     * The vehicle and its outbox change are committed in one transaction.
+     * @param id ID of the vehicle to be updated.
+     * @param patch the patch document to be applied to the vehicle.
+     * @param mergePatch true if the patch is a JSON Merge Patch, false if it is a JSON Patch.
+     * @param ifMatch the If-Match header of the request, null if the update is unconditional.
+     * @return ResponseEntity with the status of the request.
+     */
+    public Mono<ResponseEntity<?>> patchVehicle(Long id, JsonNode patch, boolean mergePatch, String ifMatch) {
+        return vehicleRepository.findLiveById(id)
+                .flatMap(row -> {
+                    if (!ETagUtil.ifMatchPasses(ifMatch, ETagUtil.toETag(row.version()))) {
+                        return Mono.just(preconditionFailedResponse(row.version()));
+                    }
+                    VehicleEntity vehicle = row.toEntity();
+                    try {
+                        if (mergePatch) {
+                            vehiclePatchApplier.applyMergePatch(patch, vehicle);
+                        } else {
+                            vehiclePatchApplier.applyJsonPatch(patch, vehicle);
+                        }
+                    } catch (JsonPatchException | IOException e) {
+                        return Mono.just(errorResponse(HttpStatus.BAD_REQUEST, "Error updating vehicle, check the request body."));
+                    }
+                    return vehicleRepository.save(VehicleRow.from(vehicle, row.id(), row.version(), row.createdAt()))
+                            .flatMap(saved -> writeChange(VehicleChangedEvent.Type.UPDATED, saved, saved.registrationKey()))
+                            .map(ReactiveVehicleService::okResponse);
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> errorResponse(HttpStatus.BAD_REQUEST, "Vehicle not found")))
+                .as(transactionalOperator::transactional)
+                .onErrorResume(OptimisticLockingFailureException.class, e -> Mono.just(preconditionFailedResponse(null)))
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(errorResponse(HttpStatus.BAD_REQUEST,
+                        isDuplicateVehicle(e) ? "Vehicle already exists" : "Error updating vehicle, check the request body.")));
+    }
+
+    /**
+     * Get a page of vehicles using keyset pagination on the ID.
+     * @param after ID of the last vehicle of the previous page, null for the first page.
+     * @param size number of vehicles per page, null for the configured default page size.
+     * @return ResponseEntity with the status of the request.
+     */
+    public Mono<ResponseEntity<?>> getVehiclePage(Long after, Integer size) {
+        if (size != null && size < 1) {
+            return Mono.just(errorResponse(HttpStatus.BAD_REQUEST, "Bad Request, page size must be greater than 0"));
+        }
+        int pageSize = size == null ? defaultPageSize : Math.min(size, maxPageSize);
+        return vehicleRepository.findPageAfter(after == null ? 0L : after, pageSize)
+                .collectList()
+                .map(vehicles -> {
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    map.put("object", "vehicles");
+                    map.put("size", vehicles.size());
+                    map.put("nextCursor", vehicles.size() == pageSize ? vehicles.getLast().id() : null);
+                    map.put("data", vehicles);
+                    return ResponseEntity.ok().body(map);
+                });
+    }
+
+    /**
+     * Stream every vehicle as it is read from the database, with backpressure from the client connection.
+     * @return the vehicles, ordered by ID.
+     */
+    public Flux<VehicleRow> streamAllVehicles() {
+        return vehicleRepository.findAllLive();
+    }
+
+    /**
+     * Get all vehicles from the database.
+     * @return ResponseEntity with the status of the request.
+     */
+    public Mono<ResponseEntity<?>> getAllVehicles() {
+        return vehicleRepository.findAllLive()
+                .collectList()
+                .map(vehicles -> vehicles.isEmpty()
+                        ? errorResponse(HttpStatus.BAD_REQUEST, "No vehicles found")
+                        : ResponseEntity.ok().body(vehicles));
+    }
+
+    /**
+     * Delete a vehicle using the registration or ID, rejecting the deletion with 412 Precondition Failed
+     * if the If-Match header does not match the current version. The vehicle is kept as a tombstone until it is purged.
+     * The tombstone and its outbox change are committed in one transaction.
+     * @param searchRequest the search request containing the registration or ID of the vehicle to be deleted.
+     * @param ifMatch the If-Match header of the request, null if the deletion is unconditional.
+     * @return ResponseEntity with the status of the request.
+     */
+    public Mono<ResponseEntity<?>> deleteVehicle(Map<String, String> searchRequest, String ifMatch) {
+        return findVehicle(searchRequest)
+                .flatMap(found -> {
+                    if (found.error() != null) {
+                        return Mono.just(found.error());
+                    }
+                    VehicleRow vehicle = found.vehicle();
+                    if (!ETagUtil.ifMatchPasses(ifMatch, ETagUtil.toETag(vehicle.version()))) {
+                        return Mono.just(preconditionFailedResponse(vehicle.version()));
+                    }
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    map.put("object", "success");
+                    map.put("status", HttpStatus.OK);
+                    map.put("message", "Vehicle deleted successfully");
+                    return vehicleRepository.save(vehicle.deleted())
+                            .flatMap(deleted -> writeChange(VehicleChangedEvent.Type.DELETED, deleted, vehicle.registrationKey()))
+                            .thenReturn(ResponseEntity.ok().body(map));
+                })
+                .as(transactionalOperator::transactional)
+                .onErrorResume(OptimisticLockingFailureException.class, e -> Mono.just(preconditionFailedResponse(null)));
+    }
+
+    /**
+     * Write the change to the outbox, with the JSON form of the vehicle unless it was deleted.
+     * @param type the kind of change.
+     * @param vehicle the vehicle as saved by the change.
+     * @param registrationKey the normalized registration of the vehicle after the change, or before it for a deletion.
+     * @return the vehicle, once the change is written.
+     */
+    private Mono<VehicleRow> writeChange(VehicleChangedEvent.Type type, VehicleRow vehicle, String registrationKey) {
+        String payload;
+        try {
+            payload = type == VehicleChangedEvent.Type.DELETED ? null : objectMapper.writeValueAsString(vehicle);
+        } catch (JsonProcessingException e) {
+            return Mono.error(new IllegalStateException("Vehicle " + vehicle.id() + " could not be written to the outbox", e));
+        }
+        return vehicleOutboxRepository.save(VehicleOutboxRow.of(type, vehicle.id(), registrationKey, payload))
+                .thenReturn(vehicle);
+    }
+
+    /**
+     * Find the vehicle of a search request by its registration or ID.
+     * @param searchRequest Map containing the registration or ID of the vehicle.
+     * @return the vehicle found, or the error response of the request.
+     */
+    private Mono<FoundVehicle> findVehicle(Map<String, String> searchRequest) {
+        Mono<VehicleRow> vehicle;
+        if (searchRequest.containsKey("registration")) {
+            if (searchRequest.get("registration").isEmpty()) {
+                return Mono.just(FoundVehicle.error(errorResponse(HttpStatus.BAD_REQUEST, "Bad Request, vehicle registration is required")));
+            }
+            vehicle = vehicleRepository.findByRegistrationKey(VehicleEntity.normalizeKey(searchRequest.get("registration")));
+        } else if (searchRequest.containsKey("id")) {
+            if (searchRequest.get("id").isEmpty()) {
+                return Mono.just(FoundVehicle.error(errorResponse(HttpStatus.BAD_REQUEST, "Bad Request, vehicle ID is required")));
+            }
+            vehicle = vehicleRepository.findLiveById(Long.parseLong(searchRequest.get("id")));
+        } else {
+            return Mono.just(FoundVehicle.error(errorResponse(HttpStatus.BAD_REQUEST, "Bad Request")));
+        }
+        return vehicle.map(row -> new FoundVehicle(row, null))
+                .defaultIfEmpty(FoundVehicle.error(errorResponse(HttpStatus.BAD_REQUEST, "Vehicle not found")));
+    }
+
+    /**
+     * Check if the data integrity violation was raised by the unique index on the registration or VIN key.
+     * @param e the exception raised when saving the vehicle.
+     * @return true if the vehicle already exists.
+     */
+    private static boolean isDuplicateVehicle(DataIntegrityViolationException e) {
+        String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains("uk_vehicles_");
+    }
+
+    private static ResponseEntity<?> okResponse(VehicleRow vehicle) {
+        return ResponseEntity.ok().eTag(ETagUtil.toETag(vehicle.version())).body(vehicle);
+    }
+
+    private static ResponseEntity<?> errorResponse(HttpStatus status, String message) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("object", "error");
+        map.put("status", status);
+        map.put("message", message);
+        return ResponseEntity.status(status).body(map);
+    }
+
+    private static ResponseEntity<?> preconditionFailedResponse(Long version) {
+        ResponseEntity<?> response = errorResponse(HttpStatus.PRECONDITION_FAILED,
+                "Vehicle was modified by another request, reload it and try again");
+        return version == null ? response
+                : ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(ETagUtil.toETag(version)).body(response.getBody());
+    }
+
+    /**
+     * The vehicle found for a search request, or the error response if the request could not be answered.
+     */
+    private record FoundVehicle(VehicleRow vehicle, ResponseEntity<?> error) {
+
+        static FoundVehicle error(ResponseEntity<?> error) {
+            return new FoundVehicle(null, error);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package co.uk.negura.workshop_vehicle_api.reactive;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * A row of the {@code vehicle_outbox} table as written by R2DBC, the counterpart of the VehicleOutboxEvent
+ * of the servlet application. Rows written by either variant are published by the same VehicleOutboxPublisher.
+ */
+@Table("vehicle_outbox")
+public record VehicleOutboxRow(
+        @Id Long id,
+        VehicleChangedEvent.Type type,
+        @Column("vehicle_id") Long vehicleId,
+        @Column("registration_key") String registrationKey,
+        String payload,
+        @Column("created_at") Instant createdAt,
+        @Column("published_at") Instant publishedAt) {
+
+    /**
+     * Build the outbox row of a change, stamped as it is written.
+     * @param type the kind of change.
+     * @param vehicleId the ID of the changed vehicle.
+     * @param registrationKey the normalized registration of the vehicle after the change, or before it for a deletion.
+     * @param payload the JSON form of the vehicle after the change, null for a deletion.
+     * @return the row to save.
+     */
+    public static VehicleOutboxRow of(VehicleChangedEvent.Type type, Long vehicleId, String registrationKey, String payload) {
+        return new VehicleOutboxRow(null, type, vehicleId, registrationKey, payload, Instant.now(), null);
+    }
+}
@@ -0,0 +1,83 @@
+package co.uk.negura.workshop_vehicle_api.reactive;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * A row of the {@code vehicles} table as read and written by R2DBC.
+ * It serializes to the same JSON as the VehicleEntity of the servlet application, so both variants of the API
+ * return identical documents.
+ */
+@Table("vehicles")
+@JsonPropertyOrder({"id", "registration", "make", "model", "colour", "colourCode", "drivable", "vin", "engineSize",
+        "fuelType", "transmission", "bodyType", "year", "mileage", "version", "createdAt", "updatedAt"})
+public record VehicleRow(
+        @Id Long id,
+        String registration,
+        String make,
+        String model,
+        String colour,
+        @Column("colour_code") String colourCode,
+        @Column("is_drivable") @JsonProperty("drivable") boolean drivable,
+        @Column("vin") @JsonProperty("vin") String vin,
+        @Column("engine_size") @JsonFormat(shape = JsonFormat.Shape.STRING) BigDecimal engineSize,
+        @Column("fuel_type") String fuelType,
+        String transmission,
+        @Column("body_type") String bodyType,
+        @JsonFormat(shape = JsonFormat.Shape.STRING) Integer year,
+        @JsonFormat(shape = JsonFormat.Shape.STRING) Integer mileage,
+        @Column("registration_key") @JsonIgnore String registrationKey,
+        @Column("vin_key") @JsonIgnore String vinKey,
+        @Column("created_at") Instant createdAt,
+        @Column("updated_at") Instant updatedAt,
+        @Column("deleted_at") @JsonIgnore Instant deletedAt,
+        @Version Long version) {
+
+    /**
+     * Build the row of a vehicle, deriving its normalized registration and VIN keys and stamping the updated timestamp.
+     * @param vehicle the vehicle details.
+     * @param id the ID of the row, null for a new vehicle.
+     * @param version the version of the row, null for a new vehicle.
+     * @param createdAt the created timestamp of the row, null for a new vehicle.
+     * @return the row to save.
+     */
+    public static VehicleRow from(VehicleEntity vehicle, Long id, Long version, Instant createdAt) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        return new VehicleRow(id, vehicle.getRegistration(), vehicle.getMake(), vehicle.getModel(), vehicle.getColour(),
+                vehicle.getColourCode(), vehicle.isDrivable(), vehicle.getVIN(), vehicle.getEngineSize(),
+                vehicle.getFuelType(), vehicle.getTransmission(), vehicle.getBodyType(), vehicle.getYear(),
+                vehicle.getMileage(), VehicleEntity.normalizeKey(vehicle.getRegistration()),
+                VehicleEntity.normalizeKey(vehicle.getVIN()), createdAt == null ? now : createdAt, now, null, version);
+    }
+
+    /**
+     * Copy the row into a tombstone, the deleted vehicle stays in the table until it is purged so delta syncs see the
+     * deletion. The keys are cleared so the registration and VIN can be used again.
+     * @return the tombstone to save.
+     */
+    public VehicleRow deleted() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        return new VehicleRow(id, registration, make, model, colour, colourCode, drivable, vin, engineSize, fuelType,
+                transmission, bodyType, year, mileage, null, null, createdAt, now, now, version);
+    }
+
+    /**
+     * Copy the row into a detached VehicleEntity, so it can be patched by the VehiclePatchApplier.
+     * @return the vehicle details of the row.
+     */
+    public VehicleEntity toEntity() {
+        return new VehicleEntity(id, registration, make, model, colour, colourCode, drivable, vin, engineSize,
+                fuelType, transmission, bodyType, year, mileage);
+    }
+}
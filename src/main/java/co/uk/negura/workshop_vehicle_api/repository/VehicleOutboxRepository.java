@@ -0,0 +1,61 @@
+package co.uk.negura.workshop_vehicle_api.repository;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleOutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface VehicleOutboxRepository extends JpaRepository<VehicleOutboxEvent, Long> {
+
+    /**
+     * Find the changes after the provided cursor that were made before the provided instant, ordered by ID.
+     * @param id the ID of the last change already seen, 0 to start from the oldest change kept
+     * @param before the instant the changes must have been made before
+     * @param limit the maximum number of changes to return
+     * @return the changes, ordered by ID
+     */
+    List<VehicleOutboxEvent> findByIdGreaterThanAndCreatedAtBeforeOrderByIdAsc(Long id, Instant before, Limit limit);
+
+    /**
+     * Lock the oldest changes that were not published yet. Rows locked by another publisher are skipped
+     * (a lock timeout of -2 is SKIP LOCKED), so several instances can drain the outbox side by side.
+     * Must be called inside a transaction.
+     * @param limit the maximum number of changes to return
+     * @return the unpublished changes, ordered by ID
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_SPEC_LOCK_TIMEOUT, value = "-2"))
+    List<VehicleOutboxEvent> findByPublishedAtIsNullOrderByIdAsc(Limit limit);
+
+    /**
+     * Mark the changes as published.
+     * @param ids the IDs of the published changes
+     * @param publishedAt when the changes were published
+     * @return the number of changes updated
+     */
+    @Transactional
+    @Modifying
+    @Query("update VehicleOutboxEvent o set o.publishedAt = :publishedAt where o.id in :ids")
+    int markPublished(Collection<Long> ids, Instant publishedAt);
+
+    /**
+     * Delete the changes that were published before the provided instant.
+     * @param before the instant the changes must have been published before
+     * @return the number of changes deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from VehicleOutboxEvent o where o.publishedAt < :before")
+    int deletePublishedBefore(Instant before);
+}
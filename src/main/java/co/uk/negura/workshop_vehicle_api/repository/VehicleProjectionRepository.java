@@ -0,0 +1,37 @@
+package co.uk.negura.workshop_vehicle_api.repository;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads of a subset of the vehicle properties, selecting only their columns instead of loading whole VehicleEntity instances.
+ * The rows are returned as maps of property name to value, in the order of the selected properties.
+ */
+public interface VehicleProjectionRepository {
+
+    /**
+     * Find a page of vehicles matching the specification, selecting only the provided properties.
+     * @param specification the filter to match, null to match every vehicle
+     * @param fields the property names to select, as parsed by VehicleFields.parse
+     * @param pageable the page and sort order to return
+     * @return the page of selected properties
+     */
+    Page<Map<String, Object>> findAllProjected(Specification<VehicleEntity> specification, List<String> fields, Pageable pageable);
+
+    /**
+     * Find the vehicles matching the specification, selecting only the provided properties.
+     * @param specification the filter to match, null to match every vehicle
+     * @param fields the property names to select, as parsed by VehicleFields.parse
+     * @param sort the order to return the vehicles in
+     * @param limit the maximum number of vehicles to return
+     * @return the selected properties of each vehicle
+     */
+    List<Map<String, Object>> findAllProjected(Specification<VehicleEntity> specification, List<String> fields, Sort sort, Limit limit);
+}
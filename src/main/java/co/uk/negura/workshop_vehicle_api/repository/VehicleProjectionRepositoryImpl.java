@@ -0,0 +1,102 @@
+package co.uk.negura.workshop_vehicle_api.repository;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.model.VehicleFields;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Criteria tuple queries selecting only the requested columns. The result is not managed by the persistence context,
+ * so no VehicleEntity is hydrated or dirty checked.
+ */
+class VehicleProjectionRepositoryImpl implements VehicleProjectionRepository {
+
+    private final EntityManager entityManager;
+
+    VehicleProjectionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Page<Map<String, Object>> findAllProjected(Specification<VehicleEntity> specification, List<String> fields,
+                                                      Pageable pageable) {
+        TypedQuery<Tuple> query = createQuery(specification, fields, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<Map<String, Object>> content = toMaps(query.getResultList(), fields);
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(specification));
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllProjected(Specification<VehicleEntity> specification, List<String> fields,
+                                                      Sort sort, Limit limit) {
+        TypedQuery<Tuple> query = createQuery(specification, fields, sort);
+        if (limit.isLimited()) {
+            query.setMaxResults(limit.max());
+        }
+        return toMaps(query.getResultList(), fields);
+    }
+
+    private TypedQuery<Tuple> createQuery(Specification<VehicleEntity> specification, List<String> fields, Sort sort) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<VehicleEntity> root = query.from(VehicleEntity.class);
+        List<Selection<?>> selections = fields.stream()
+                .<Selection<?>>map(field -> root.get(VehicleFields.attribute(field)).alias(field))
+                .toList();
+        query.multiselect(selections);
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, builder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, builder));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<VehicleEntity> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<VehicleEntity> root = query.from(VehicleEntity.class);
+        query.select(builder.count(root));
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, builder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static List<Map<String, Object>> toMaps(List<Tuple> tuples, List<String> fields) {
+        return tuples.stream().map(tuple -> {
+            Map<String, Object> vehicle = new LinkedHashMap<>();
+            for (String field : fields) {
+                vehicle.put(field, VehicleFields.jsonValue(field, tuple.get(field)));
+            }
+            return vehicle;
+        }).toList();
+    }
+}
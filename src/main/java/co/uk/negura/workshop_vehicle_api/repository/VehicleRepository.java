@@ -1,13 +1,88 @@
 package co.uk.negura.workshop_vehicle_api.repository;
 
 import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface VehicleRepository extends JpaRepository<VehicleEntity, Long> {
+public interface VehicleRepository extends JpaRepository<VehicleEntity, Long>, JpaSpecificationExecutor<VehicleEntity>,
+        VehicleProjectionRepository {
 
     Optional<VehicleEntity> findById(Long id);
 
-    Optional<VehicleEntity> findByRegistration(String registration);
+    /**
+     * Find a vehicle by its normalized registration, served by the unique index on the registration key.
+     * @param registrationKey the registration normalized with VehicleEntity.normalizeKey
+     * @return the vehicle with the registration, if any
+     */
+    Optional<VehicleEntity> findByRegistrationKey(String registrationKey);
+
+    /**
+     * Find the vehicles with the provided registration keys, served by the unique index on the registration key.
+     * @param registrationKeys the normalized registrations to look up
+     * @return the vehicles found, in no particular order
+     */
+    List<VehicleEntity> findByRegistrationKeyIn(Collection<String> registrationKeys);
+
+    /**
+     * Find which of the provided registration keys already belong to a vehicle.
+     * @param registrationKeys the normalized registrations to check
+     * @return the registration keys that already exist
+     */
+    @Query("select v.registrationKey from VehicleEntity v where v.registrationKey in :registrationKeys")
+    List<String> findExistingRegistrationKeys(Collection<String> registrationKeys);
+
+    /**
+     * Find the vehicles changed after the watermark, including the tombstones of deleted vehicles, ordered by
+     * the time of the change and then by ID, served by the index on (updated_at, id).
+     * A native query, as every JPQL query on VehicleEntity leaves the tombstones out.
+     * @param since the updated timestamp of the last change already seen
+     * @param afterId the ID of the last change already seen, for the changes made at the same instant
+     * @param before the instant the changes must have been made before
+     * @param size the maximum number of vehicles to return
+     * @return the changed vehicles and tombstones
+     */
+    @Query(value = "SELECT * FROM vehicles WHERE (updated_at > :since OR (updated_at = :since AND id > :afterId)) " +
+            "AND updated_at < :before ORDER BY updated_at, id LIMIT :size", nativeQuery = true)
+    List<VehicleEntity> findChangedSince(Instant since, Long afterId, Instant before, int size);
+
+    /**
+     * Delete the tombstones of the vehicles deleted before the provided instant.
+     * @param before the instant the vehicles must have been deleted before
+     * @return the number of tombstones deleted
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM vehicles WHERE deleted_at < :before", nativeQuery = true)
+    int purgeDeletedBefore(Instant before);
+
+    /**
+     * Keyset pagination on the primary key, returns the next page of vehicles after the provided ID.
+     * @param id the ID of the last vehicle of the previous page, 0 for the first page
+     * @param limit the maximum number of vehicles to return
+     * @return the vehicles with an ID greater than the provided one, ordered by ID
+     */
+    List<VehicleEntity> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Streams every vehicle ordered by ID. The fetch size of Integer.MIN_VALUE makes the MySQL driver
+     * stream the rows one by one instead of buffering the whole result set.
+     * Must be consumed inside a transaction and closed after use.
+     * @return a stream of all the vehicles
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    @Query("select v from VehicleEntity v order by v.id")
+    Stream<VehicleEntity> streamAll();
 }
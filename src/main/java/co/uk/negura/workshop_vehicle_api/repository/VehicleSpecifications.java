@@ -0,0 +1,103 @@
+package co.uk.negura.workshop_vehicle_api.repository;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.model.VehicleSearchCriteria;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+/**
+ * Specifications used to filter vehicles on the indexed columns of the vehicles table.
+ * The filters use plain equality and range predicates so the database can use the indexes declared on VehicleEntity.
+ */
+public final class VehicleSpecifications {
+
+    private VehicleSpecifications() {
+    }
+
+    /**
+     * Build the specification matching every filter of the search criteria that is provided.
+     * @param criteria the search criteria.
+     * @return the specification combining the provided filters, matching every vehicle if no filter is provided.
+     */
+    public static Specification<VehicleEntity> matching(VehicleSearchCriteria criteria) {
+        return Specification.where(attributeEquals("make", criteria.make()))
+                .and(attributeEquals("model", criteria.model()))
+                .and(attributeEquals("fuelType", criteria.fuelType()))
+                .and(attributeEquals("transmission", criteria.transmission()))
+                .and(attributeEquals("bodyType", criteria.bodyType()))
+                .and(attributeEquals("vinKey", VehicleEntity.normalizeKey(criteria.vin())))
+                .and(attributeAtLeast("year", criteria.yearFrom()))
+                .and(attributeAtMost("year", criteria.yearTo()))
+                .and(attributeAtLeast("mileage", criteria.mileageFrom()))
+                .and(attributeAtMost("mileage", criteria.mileageTo()))
+                .and(attributeAtLeast("engineSize", criteria.engineSizeFrom()))
+                .and(attributeAtMost("engineSize", criteria.engineSizeTo()));
+    }
+
+    /**
+     * Match vehicles with an ID greater than the provided one, the keyset of the paginated reads.
+     * @param id the ID of the last vehicle of the previous page.
+     * @return the specification.
+     */
+    public static Specification<VehicleEntity> idGreaterThan(Long id) {
+        return (root, query, builder) -> builder.greaterThan(root.get("id"), id);
+    }
+
+    /**
+     * Match vehicles with one of the provided IDs.
+     * @param ids the IDs to match.
+     * @return the specification.
+     */
+    public static Specification<VehicleEntity> idIn(Collection<Long> ids) {
+        return (root, query, builder) -> root.get("id").in(ids);
+    }
+
+    /**
+     * Match vehicles with one of the provided normalized registrations, served by the unique index on the registration key.
+     * @param registrationKeys the registrations normalized with VehicleEntity.normalizeKey.
+     * @return the specification.
+     */
+    public static Specification<VehicleEntity> registrationKeyIn(Collection<String> registrationKeys) {
+        return (root, query, builder) -> root.get("registrationKey").in(registrationKeys);
+    }
+
+    /**
+     * Match vehicles whose attribute equals the value, or every vehicle if the value is blank.
+     * @param attribute the name of the VehicleEntity attribute.
+     * @param value the value to match.
+     * @return the specification, or null if the value is blank.
+     */
+    private static Specification<VehicleEntity> attributeEquals(String attribute, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return (root, query, builder) -> builder.equal(root.get(attribute), value.trim());
+    }
+
+    /**
+     * Match vehicles whose numeric attribute is at least the value, or every vehicle if the value is null.
+     * @param attribute the name of the VehicleEntity attribute.
+     * @param value the lower bound, inclusive.
+     * @return the specification, or null if the value is null.
+     */
+    private static <T extends Comparable<? super T>> Specification<VehicleEntity> attributeAtLeast(String attribute, T value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get(attribute), value);
+    }
+
+    /**
+     * Match vehicles whose numeric attribute is at most the value, or every vehicle if the value is null.
+     * @param attribute the name of the VehicleEntity attribute.
+     * @param value the upper bound, inclusive.
+     * @return the specification, or null if the value is null.
+     */
+    private static <T extends Comparable<? super T>> Specification<VehicleEntity> attributeAtMost(String attribute, T value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get(attribute), value);
+    }
+}
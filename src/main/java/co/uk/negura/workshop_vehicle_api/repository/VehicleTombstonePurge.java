@@ -0,0 +1,40 @@
+package co.uk.negura.workshop_vehicle_api.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Deletes the tombstones of soft deleted vehicles once they are older than {@code vehicle.tombstones.retention}.
+ * Clients whose delta watermark is older than the retention can no longer learn about those deletions,
+ * the delta endpoint answers them with 410 Gone so they reload every vehicle.
+ */
+@Component
+public class VehicleTombstonePurge {
+
+    private static final Logger logger = LoggerFactory.getLogger(VehicleTombstonePurge.class);
+
+    private final VehicleRepository vehicleRepository;
+
+    private final Duration retention;
+
+    public VehicleTombstonePurge(VehicleRepository vehicleRepository,
+                                 @Value("${vehicle.tombstones.retention:P30D}") Duration retention) {
+        this.vehicleRepository = vehicleRepository;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${vehicle.tombstones.purgeInterval:PT1H}",
+            initialDelayString = "${vehicle.tombstones.purgeInterval:PT1H}")
+    public void purgeTombstones() {
+        int purged = vehicleRepository.purgeDeletedBefore(Instant.now().minus(retention));
+        if (purged > 0) {
+            logger.info("Purged {} deleted vehicles", purged);
+        }
+    }
+}
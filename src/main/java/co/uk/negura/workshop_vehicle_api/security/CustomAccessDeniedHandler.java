@@ -0,0 +1,36 @@
+package co.uk.negura.workshop_vehicle_api.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.web.access.AccessDeniedHandler;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Answers an authenticated request that lacks the authority a route requires with 403 Forbidden and a JSON message.
+ */
+public class CustomAccessDeniedHandler implements AccessDeniedHandler {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Writes the 403 Forbidden response.
+     * @param request The HTTP request that was denied.
+     * @param response The HTTP response to write the error to.
+     * @param accessDeniedException The exception raised by the authorization check.
+     * @throws IOException If writing the response fails.
+     */
+    @Override
+    public void handle(HttpServletRequest request, HttpServletResponse response,
+                       AccessDeniedException accessDeniedException) throws IOException {
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(OBJECT_MAPPER.writeValueAsString(
+                Map.of("message", "Forbidden: " + accessDeniedException.getMessage())));
+    }
+}
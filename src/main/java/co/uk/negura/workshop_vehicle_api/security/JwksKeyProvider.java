@@ -0,0 +1,88 @@
+package co.uk.negura.workshop_vehicle_api.security;
+
+import co.uk.negura.workshop_vehicle_api.util.ValidateTokenUtil;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Keeps the public keys of workshop-users-api in memory so tokens can be verified without a network call.
+ * The key set is fetched once at startup, refreshed on a fixed schedule and, at most once per
+ * {@code auth.jwks.minRefreshInterval}, when a token is signed with a key id that is not known yet.
+ * If a refresh fails the previously fetched keys are kept.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.mode", havingValue = "local")
+public class JwksKeyProvider implements JWKSource<SecurityContext> {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksKeyProvider.class);
+
+    private final ValidateTokenUtil validateTokenUtil;
+    private final Duration minRefreshInterval;
+    private volatile JWKSet jwkSet = new JWKSet();
+    private volatile Instant lastRefresh = Instant.EPOCH;
+
+    public JwksKeyProvider(ValidateTokenUtil validateTokenUtil,
+                           @Value("${auth.jwks.minRefreshInterval:30s}") Duration minRefreshInterval) {
+        this.validateTokenUtil = validateTokenUtil;
+        this.minRefreshInterval = minRefreshInterval;
+        fetchKeys();
+    }
+
+    /**
+     * Selects the keys matching the JWS header of the token being verified.
+     * If no key matches, the key set is refreshed once to pick up rotated keys.
+     * @param jwkSelector the selector built from the token header
+     * @param context the security context, unused
+     * @return the matching keys, empty if none are known
+     */
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        List<JWK> keys = jwkSelector.select(jwkSet);
+        if (keys.isEmpty() && lastRefresh.plus(minRefreshInterval).isBefore(Instant.now())) {
+            fetchKeys();
+            keys = jwkSelector.select(jwkSet);
+        }
+        return keys;
+    }
+
+    /**
+     * Fetches the key set from workshop-users-api and replaces the keys held in memory.
+     */
+    @Scheduled(fixedDelayString = "${auth.jwks.refreshInterval:PT15M}",
+            initialDelayString = "${auth.jwks.refreshInterval:PT15M}")
+    public void refresh() {
+        fetchKeys();
+    }
+
+    /**
+     * Fetches the key set, private so the constructor does not call a method a subclass or proxy could override.
+     */
+    private void fetchKeys() {
+        lastRefresh = Instant.now();
+        try {
+            String document = validateTokenUtil.fetchJwkSet();
+            if (document == null) {
+                logger.warn("Could not fetch the JWK set from workshop-users-api, keeping {} known keys",
+                        jwkSet.getKeys().size());
+                return;
+            }
+            jwkSet = JWKSet.parse(document);
+        } catch (Exception e) {
+            logger.warn("Failed to refresh the JWK set from workshop-users-api, keeping {} known keys",
+                    jwkSet.getKeys().size(), e);
+        }
+    }
+}
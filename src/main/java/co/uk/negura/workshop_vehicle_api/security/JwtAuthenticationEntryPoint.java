@@ -0,0 +1,36 @@
+package co.uk.negura.workshop_vehicle_api.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Answers a request to a secured route without a valid JWT token with 401 Unauthorized and a JSON message.
+ */
+public class JwtAuthenticationEntryPoint implements AuthenticationEntryPoint {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Writes the 401 Unauthorized response.
+     * @param request The HTTP request that was not authenticated.
+     * @param response The HTTP response to write the error to.
+     * @param authException The exception raised because the request is not authenticated.
+     * @throws IOException If writing the response fails.
+     */
+    @Override
+    public void commence(HttpServletRequest request, HttpServletResponse response,
+                         AuthenticationException authException) throws IOException {
+        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(OBJECT_MAPPER.writeValueAsString(
+                Map.of("message", "Unauthorized: " + authException.getMessage())));
+    }
+}
@@ -1,46 +1,42 @@
 package co.uk.negura.workshop_vehicle_api.security;
 
 import co.uk.negura.workshop_vehicle_api.util.ValidateTokenUtil;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.jwt.JwtException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 import java.io.IOException;
 
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
 
     private final ValidateTokenUtil validateTokenUtil;
+    private final LocalJwtVerifier localJwtVerifier;
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
 
-    public JwtAuthenticationFilter(ValidateTokenUtil validateTokenUtil) {
+    public JwtAuthenticationFilter(ValidateTokenUtil validateTokenUtil,
+                                   ObjectProvider<LocalJwtVerifier> localJwtVerifier) {
         this.validateTokenUtil = validateTokenUtil;
+        this.localJwtVerifier = localJwtVerifier.getIfAvailable();
     }
 
     /**
-     * This method is invoked once per request to implement the logic of the JWT authentication filter.
+     * This method is invoked once per request to a secured route to implement the logic of the JWT authentication filter.
+     * When {@code auth.mode} is {@code local} the token is verified in-process by the LocalJwtVerifier,
+     * otherwise it is validated remotely by workshop-users-api through the ValidateTokenUtil.
      * @param request The HTTP request object containing the request information.
      * @param response The HTTP response object used to send the response.
      * @param filterChain The filter chain object used to continue with the filter chain.
@@ -53,14 +49,40 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         String token = extractToken(request);
         if (token != null) {
-            Map<String, Object> responseBody = validateTokenAndGetBody(token);
-            if (responseBody != null) {
-                setAuthentication(request, responseBody);
+            if (localJwtVerifier != null) {
+                verifyTokenLocally(request, token);
+            } else {
+                validateTokenRemotely(request, token);
             }
         }
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Skips the filter for requests to public or unknown routes. They are permitted or denied whatever the token,
+     * so validating it would only cost a request to workshop-users-api.
+     * @param request The HTTP request object containing the request information.
+     * @return true if the request does not match a secured route of the VehicleRoutes.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !VehicleRoutes.isSecured(request);
+    }
+
+    /**
+     * Verifies the JWT token locally and, if it is valid, authenticates the user with the authorities from its claims.
+     * An invalid token leaves the request unauthenticated.
+     * @param request The HTTP request object containing the request information.
+     * @param token The JWT token to verify.
+     */
+    private void verifyTokenLocally(HttpServletRequest request, String token) {
+        try {
+            authenticate(request, localJwtVerifier.verify(token));
+        } catch (JwtException e) {
+            logger.debug("Rejected JWT token: {}", e.getMessage());
+        }
+    }
+
     /**
      * Extracts the JWT token from the Authorization header in the request.
      * @param request The HTTP request object containing the request information.
@@ -75,43 +97,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * Validates the JWT token using the ValidateTokenUtil and retrieves the response body.
+     * Validates the JWT token using the ValidateTokenUtil and, if it is valid, authenticates the user with the
+     * VehiclePrincipal of the validation response. The principal is read once per token and cached with the
+     * validation response, so repeated requests with the same token reuse it as is.
+     * An invalid token leaves the request unauthenticated.
+     * @param request The HTTP request object containing the request information.
      * @param token The JWT token to validate.
-     * @return The response body containing the user details if the token is valid, or null if the token is invalid.
      */
-    private Map<String, Object> validateTokenAndGetBody(String token) {
+    private void validateTokenRemotely(HttpServletRequest request, String token) {
         ResponseEntity<?> responseEntity = validateTokenUtil.validateToken(token);
-        if (responseEntity.getStatusCode().is2xxSuccessful()) {
-            return (Map<String, Object>) responseEntity.getBody();
+        if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() instanceof VehiclePrincipal principal) {
+            authenticate(request, principal);
         }
-        return null;
     }
 
     /**
-     * Sets the authentication details in the SecurityContextHolder based on the user details extracted from the response body.
-     * The user's roles are mapped to GrantedAuthority objects and a UserDetails object is created with the username and authorities.
-     * A UsernamePasswordAuthenticationToken is then created with the UserDetails object and set in the SecurityContextHolder's context.
-     * This effectively authenticates the user for the current request.
+     * Creates a UsernamePasswordAuthenticationToken for the user and sets it in the SecurityContextHolder's context.
      * @param request The HTTP request object containing the request information.
-     * @param responseBody The response body containing the user details.
-     * @throws JsonProcessingException If an error occurs while processing the JSON response.
+     * @param principal The authenticated user.
      */
-    private void setAuthentication(HttpServletRequest request, Map<String, Object> responseBody) throws JsonProcessingException {
-        String message = (String) responseBody.get("message");
-        ObjectMapper objectMapper = new ObjectMapper();
-        Map<String, Object> messageMap = objectMapper.readValue(message, new TypeReference<>() {
-        });
-        Map<String, Object> dataMap = (Map<String, Object>) messageMap.get("data");
-        String username = (String) dataMap.get("username");
-        List<Map<String, Object>> roles = (List<Map<String, Object>>) dataMap.get("roles");
-        List<GrantedAuthority> authorities = roles.stream()
-                .flatMap(role -> ((List<Map<String, Object>>) role.get("authorities")).stream())
-                .map(authority -> (String) authority.get("name"))
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
-        UserDetails userDetails = User.withUsername(username).authorities(authorities).password("").build();
+    private void authenticate(HttpServletRequest request, VehiclePrincipal principal) {
         UsernamePasswordAuthenticationToken authentication =
-                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
         SecurityContextHolder.getContext().setAuthentication(authentication);
     }
@@ -0,0 +1,76 @@
+package co.uk.negura.workshop_vehicle_api.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Verifies JWTs locally against the public keys of workshop-users-api, used when {@code auth.mode} is {@code local}.
+ * The signature, expiry and not-before claims are checked and the authorities are read straight from the token claims,
+ * so no request to workshop-users-api is needed to authenticate a request.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.mode", havingValue = "local")
+public class LocalJwtVerifier {
+
+    private final NimbusJwtDecoder jwtDecoder;
+    private final String authoritiesClaim;
+
+    public LocalJwtVerifier(JWKSource<SecurityContext> keySource,
+                            @Value("${auth.jwt.authoritiesClaim:authorities}") String authoritiesClaim) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(
+                Set.of(JWSAlgorithm.RS256, JWSAlgorithm.RS384, JWSAlgorithm.RS512, JWSAlgorithm.ES256), keySource));
+        this.jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        this.authoritiesClaim = authoritiesClaim;
+    }
+
+    /**
+     * Verifies the token and builds the principal of the token holder from its claims.
+     * The username is read from the {@code username} claim, falling back to the subject.
+     * @param token the JWT to verify
+     * @return the principal of the token holder
+     * @throws JwtException if the token is malformed, expired or not signed by a known key
+     */
+    public VehiclePrincipal verify(String token) {
+        Jwt jwt = jwtDecoder.decode(token);
+        String username = jwt.hasClaim("username") ? jwt.getClaimAsString("username") : jwt.getSubject();
+        if (username == null) {
+            throw new JwtException("Token has no username or subject claim");
+        }
+        return VehiclePrincipal.of(username, extractAuthorities(jwt));
+    }
+
+    /**
+     * Reads the authorities claim of the token, which may be either a list or a space separated string.
+     * @param jwt the verified token
+     * @return the names of the authorities granted by the token
+     */
+    private List<String> extractAuthorities(Jwt jwt) {
+        Object claim = jwt.getClaim(authoritiesClaim);
+        Collection<?> values;
+        if (claim instanceof Collection<?> collection) {
+            values = collection;
+        } else if (claim instanceof String string) {
+            values = List.of(string.split(" "));
+        } else {
+            values = List.of();
+        }
+        return values.stream()
+                .map(String::valueOf)
+                .filter(value -> !value.isBlank())
+                .toList();
+    }
+}
@@ -1,15 +1,15 @@
 package co.uk.negura.workshop_vehicle_api.security;
 
-import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
 
+import static co.uk.negura.workshop_vehicle_api.security.VehicleAuthorizationManager.requires;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -23,8 +23,13 @@ public class SecurityConfig {
      * This method is used to configure the security filter chain.
      * It configures the security filter chain to handle JWT authentication and authorization for the API endpoints.
      * The filter chain is configured to disable CSRF protection and authorize the API endpoints based on the HTTP method and required authorities.
+     * The routes and the authority each of them requires are the VehicleRoutes, which the JWT authentication filter also uses to skip
+     * the token validation of requests that need no authentication. Requests to any other route are denied.
+     * The authorities are checked by a VehicleAuthorizationManager, a lookup in the EnumSet of the VehiclePrincipal instead of a string comparison.
+     * The health and Prometheus actuator endpoints are left open so that the service can be probed and scraped without a token.
      * The JWT authentication filter is added before the AnonymousAuthenticationFilter to authenticate the user based on the JWT token.
-     * The exception handling is configured to return a 403 Forbidden response when the user does not have the required authority to perform an action.
+     * The exception handling is configured to return a 401 Unauthorized response when a secured route is requested without a valid token,
+     * and a 403 Forbidden response when the user does not have the required authority to perform an action, both with a JSON message.
      * @param http The HttpSecurity object used to configure the security filter chain.
      * @return The SecurityFilterChain object representing the security filter chain configuration.
      * @throws Exception If an error occurs during the security filter chain configuration.
@@ -33,19 +38,22 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .exceptionHandling(exceptionHandling -> exceptionHandling
-                        .accessDeniedHandler((request, response, accessDeniedException) -> {
-                            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-                            response.getWriter().write("Access Denied: You do not have the required authority to perform this action");
-                        })
+                        .authenticationEntryPoint(new JwtAuthenticationEntryPoint())
+                        .accessDeniedHandler(new CustomAccessDeniedHandler())
                 )
                 .addFilterBefore(jwtAuthenticationFilter, AnonymousAuthenticationFilter.class)
                 .csrf(AbstractHttpConfigurer::disable)
-                .authorizeHttpRequests(authorize -> authorize
-                        .requestMatchers(HttpMethod.POST, "/api/v1/vehicle").hasAuthority("USER_DETAILS_WRITE")
-                        .requestMatchers(HttpMethod.PATCH, "/api/v1/vehicle/{ID}").hasAuthority("USER_DETAILS_WRITE")
-                        .requestMatchers(HttpMethod.GET, "/api/v1/vehicle").hasAuthority("USER_DETAILS_READ")
-                        .requestMatchers(HttpMethod.DELETE, "/api/v1/vehicle").hasAuthority("USER_DETAILS_DELETE")
-                        .anyRequest().authenticated());
+                .authorizeHttpRequests(authorize -> {
+                    authorize.requestMatchers(VehicleRoutes.PUBLIC).permitAll();
+                    for (VehicleRoutes.Route route : VehicleRoutes.SECURED) {
+                        if (route.authority() == null) {
+                            authorize.requestMatchers(route.matcher()).authenticated();
+                        } else {
+                            authorize.requestMatchers(route.matcher()).access(requires(route.authority()));
+                        }
+                    }
+                    authorize.anyRequest().denyAll();
+                });
         return http.build();
     }
 }
@@ -0,0 +1,38 @@
+package co.uk.negura.workshop_vehicle_api.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The authorities granted by workshop-users-api that the vehicle API checks. Each authority is a single shared
+ * instance, so a VehiclePrincipal holds them in an EnumSet and authorization tests a bit instead of comparing strings.
+ */
+public enum VehicleAuthority implements GrantedAuthority {
+    USER_DETAILS_READ,
+    USER_DETAILS_WRITE,
+    USER_DETAILS_DELETE;
+
+    private static final Map<String, VehicleAuthority> BY_NAME = new HashMap<>();
+
+    static {
+        for (VehicleAuthority authority : values()) {
+            BY_NAME.put(authority.name(), authority);
+        }
+    }
+
+    /**
+     * Find the authority with the name granted by workshop-users-api.
+     * @param name the name of the authority, e.g. USER_DETAILS_READ.
+     * @return the authority, or null if the vehicle API does not check it.
+     */
+    public static VehicleAuthority fromName(String name) {
+        return name == null ? null : BY_NAME.get(name);
+    }
+
+    @Override
+    public String getAuthority() {
+        return name();
+    }
+}
@@ -0,0 +1,47 @@
+package co.uk.negura.workshop_vehicle_api.security;
+
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Grants a request if the authenticated VehiclePrincipal holds the required authority, a lookup in its EnumSet.
+ * Any other authentication, including the anonymous one, is denied.
+ */
+public final class VehicleAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private final VehicleAuthority authority;
+
+    private final AuthorizationDecision granted = new AuthorizationDecision(true);
+
+    private final AuthorizationDecision denied = new AuthorizationDecision(false);
+
+    private VehicleAuthorizationManager(VehicleAuthority authority) {
+        this.authority = authority;
+    }
+
+    /**
+     * Create the authorization manager requiring the authority.
+     * @param authority the authority the request requires.
+     * @return the authorization manager.
+     */
+    public static VehicleAuthorizationManager requires(VehicleAuthority authority) {
+        return new VehicleAuthorizationManager(authority);
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        Authentication current = authentication.get();
+        boolean hasAuthority = current != null && current.isAuthenticated()
+                && current.getPrincipal() instanceof VehiclePrincipal principal && principal.hasAuthority(authority);
+        return hasAuthority ? granted : denied;
+    }
+
+    @Override
+    public String toString() {
+        return "VehicleAuthorizationManager[requires=" + authority + "]";
+    }
+}
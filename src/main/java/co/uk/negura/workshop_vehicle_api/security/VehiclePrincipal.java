@@ -0,0 +1,161 @@
+package co.uk.negura.workshop_vehicle_api.security;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The immutable user a token was issued to, built once when the token is validated and reused by every request
+ * carrying the token. The authorities the vehicle API checks are held in an EnumSet, authorities it does not
+ * check are kept as plain GrantedAuthority objects so they are still visible to the rest of Spring Security.
+ */
+public final class VehiclePrincipal implements UserDetails {
+
+    private static final ObjectReader MESSAGE_READER = new ObjectMapper().readerFor(ValidationMessage.class);
+
+    private final String username;
+
+    private final Set<VehicleAuthority> vehicleAuthorities;
+
+    private final List<GrantedAuthority> authorities;
+
+    private VehiclePrincipal(String username, Set<VehicleAuthority> vehicleAuthorities, List<GrantedAuthority> authorities) {
+        this.username = username;
+        this.vehicleAuthorities = vehicleAuthorities;
+        this.authorities = authorities;
+    }
+
+    /**
+     * Build the principal of a user, de-duplicating the authorities.
+     * @param username the name of the user.
+     * @param authorityNames the names of the authorities granted to the user.
+     * @return the principal.
+     */
+    public static VehiclePrincipal of(String username, Collection<String> authorityNames) {
+        if (username == null) {
+            throw new IllegalArgumentException("A principal needs a username");
+        }
+        EnumSet<VehicleAuthority> vehicleAuthorities = EnumSet.noneOf(VehicleAuthority.class);
+        Set<GrantedAuthority> authorities = new LinkedHashSet<>();
+        for (String name : authorityNames) {
+            VehicleAuthority authority = VehicleAuthority.fromName(name);
+            if (authority != null) {
+                vehicleAuthorities.add(authority);
+                authorities.add(authority);
+            } else if (name != null && !name.isBlank()) {
+                authorities.add(new SimpleGrantedAuthority(name));
+            }
+        }
+        return new VehiclePrincipal(username, Collections.unmodifiableSet(vehicleAuthorities),
+                List.copyOf(authorities));
+    }
+
+    /**
+     * Read the principal from the message of a successful token validation response of workshop-users-api,
+     * a JSON document of the form {@code {"data":{"username":"...","roles":[{"authorities":[{"name":"..."}]}]}}}.
+     * @param message the message of the validation response.
+     * @return the principal of the user the token was issued to.
+     * @throws IOException if the message is not a user document.
+     */
+    public static VehiclePrincipal fromValidationMessage(String message) throws IOException {
+        if (message == null) {
+            throw new IOException("The token validation response has no message");
+        }
+        ValidationMessage validationMessage = MESSAGE_READER.readValue(message);
+        if (validationMessage.data() == null || validationMessage.data().username() == null) {
+            throw new IOException("The token validation response has no username");
+        }
+        List<String> authorityNames = new ArrayList<>();
+        if (validationMessage.data().roles() != null) {
+            for (Role role : validationMessage.data().roles()) {
+                if (role.authorities() != null) {
+                    for (Authority authority : role.authorities()) {
+                        authorityNames.add(authority.name());
+                    }
+                }
+            }
+        }
+        return of(validationMessage.data().username(), authorityNames);
+    }
+
+    /**
+     * Check if the user was granted the authority.
+     * @param authority the authority to check.
+     * @return true if the user was granted the authority.
+     */
+    public boolean hasAuthority(VehicleAuthority authority) {
+        return vehicleAuthorities.contains(authority);
+    }
+
+    public Set<VehicleAuthority> getVehicleAuthorities() {
+        return vehicleAuthorities;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return "";
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "VehiclePrincipal[username=" + username + ", authorities=" + authorities + "]";
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ValidationMessage(Data data) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Data(String username, List<Role> roles) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Role(List<Authority> authorities) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Authority(String name) {
+    }
+}
@@ -0,0 +1,57 @@
+package co.uk.negura.workshop_vehicle_api.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
+/**
+ * The routes of the vehicle API and the authority each of them requires. The SecurityConfig authorizes requests with
+ * these rules and the JwtAuthenticationFilter only validates the bearer token of a request matching a secured route,
+ * so requests to public or unknown routes never cause a token validation.
+ */
+final class VehicleRoutes {
+
+    static final RequestMatcher PUBLIC = matcher(HttpMethod.GET, "/actuator/health", "/actuator/prometheus");
+
+    static final List<Route> SECURED = List.of(
+            new Route(matcher(HttpMethod.POST, "/api/v1/vehicle", "/api/v1/vehicle/import"), VehicleAuthority.USER_DETAILS_WRITE),
+            new Route(matcher(HttpMethod.PATCH, "/api/v1/vehicle/{ID}"), VehicleAuthority.USER_DETAILS_WRITE),
+            new Route(matcher(HttpMethod.GET, "/api/v1/vehicle"), VehicleAuthority.USER_DETAILS_READ),
+            new Route(matcher(HttpMethod.POST, "/api/v1/vehicle/batch"), VehicleAuthority.USER_DETAILS_READ),
+            new Route(matcher(HttpMethod.GET, "/api/v1/vehicle/page", "/api/v1/vehicle/stream", "/api/v1/vehicle/search",
+                    "/api/v1/vehicle/changes", "/api/v1/vehicle/delta"), VehicleAuthority.USER_DETAILS_READ),
+            new Route(matcher(HttpMethod.DELETE, "/api/v1/vehicle"), VehicleAuthority.USER_DETAILS_DELETE),
+            new Route(matcher(HttpMethod.GET, "/api/v1/vehicle/all"), null));
+
+    private static final RequestMatcher ANY_SECURED = new OrRequestMatcher(SECURED.stream().map(Route::matcher).toList());
+
+    private VehicleRoutes() {
+    }
+
+    /**
+     * Check if the request is for a secured route, the only requests whose bearer token is worth validating.
+     * @param request the request to check.
+     * @return true if the request matches a secured route.
+     */
+    static boolean isSecured(HttpServletRequest request) {
+        return ANY_SECURED.matches(request);
+    }
+
+    private static RequestMatcher matcher(HttpMethod method, String... patterns) {
+        return new OrRequestMatcher(Arrays.stream(patterns).map(pattern -> (RequestMatcher) antMatcher(method, pattern)).toList());
+    }
+
+    /**
+     * A secured route.
+     * @param matcher the matcher of the requests to the route.
+     * @param authority the authority the route requires, or null if any authenticated user may call it.
+     */
+    record Route(RequestMatcher matcher, VehicleAuthority authority) {
+    }
+}
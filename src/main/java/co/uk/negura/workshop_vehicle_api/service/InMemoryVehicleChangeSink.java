@@ -0,0 +1,53 @@
+package co.uk.negura.workshop_vehicle_api.service;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a message broker, the default sink. Keeps the most recently published changes in memory,
+ * which is enough to run the outbox without a broker and to check what would have been published.
+ */
+@Component
+@ConditionalOnProperty(name = "vehicle.outbox.sink", havingValue = "memory", matchIfMissing = true)
+public class InMemoryVehicleChangeSink implements VehicleChangeSink {
+
+    private final int capacity;
+    private final Deque<VehicleChange> recentChanges;
+    private final AtomicLong publishedCount = new AtomicLong();
+
+    public InMemoryVehicleChangeSink(@Value("${vehicle.outbox.memory.capacity:1000}") int capacity) {
+        this.capacity = capacity;
+        this.recentChanges = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public synchronized void publish(List<VehicleChange> changes) {
+        for (VehicleChange change : changes) {
+            if (recentChanges.size() == capacity) {
+                recentChanges.removeFirst();
+            }
+            recentChanges.addLast(change);
+        }
+        publishedCount.addAndGet(changes.size());
+    }
+
+    /**
+     * Get the most recently published changes, oldest first.
+     * @return a copy of the recent changes.
+     */
+    public synchronized List<VehicleChange> getRecentChanges() {
+        return new ArrayList<>(recentChanges);
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+}
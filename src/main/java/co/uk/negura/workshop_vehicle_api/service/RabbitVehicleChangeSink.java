@@ -0,0 +1,67 @@
+package co.uk.negura.workshop_vehicle_api.service;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChange;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Publishes the changes to a RabbitMQ topic exchange, routed by {@code vehicle.created}, {@code vehicle.updated}
+ * or {@code vehicle.deleted}. The batch is sent on one channel and only accepted once the broker confirmed every message,
+ * which needs {@code spring.rabbitmq.publisher-confirm-type} set to simple.
+ */
+@Component
+@ConditionalOnProperty(name = "vehicle.outbox.sink", havingValue = "rabbit")
+public class RabbitVehicleChangeSink implements VehicleChangeSink {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final String exchange;
+
+    private final Duration confirmTimeout;
+
+    public RabbitVehicleChangeSink(RabbitTemplate rabbitTemplate, ObjectMapper objectMapper,
+                                   @Value("${vehicle.outbox.rabbit.exchange:workshop.vehicles}") String exchange,
+                                   @Value("${vehicle.outbox.rabbit.confirmTimeout:5s}") Duration confirmTimeout) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.exchange = exchange;
+        this.confirmTimeout = confirmTimeout;
+    }
+
+    @Override
+    public void publish(List<VehicleChange> changes) {
+        rabbitTemplate.invoke(operations -> {
+            for (VehicleChange change : changes) {
+                operations.send(exchange, "vehicle." + change.type().name().toLowerCase(Locale.ROOT), toMessage(change));
+            }
+            operations.waitForConfirmsOrDie(confirmTimeout.toMillis());
+            return null;
+        });
+    }
+
+    private Message toMessage(VehicleChange change) {
+        try {
+            return MessageBuilder.withBody(objectMapper.writeValueAsBytes(change))
+                    .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                    .setMessageId(String.valueOf(change.sequence()))
+                    .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Change " + change.sequence() + " could not be serialized", e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package co.uk.negura.workshop_vehicle_api.service;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of vehicles keyed by both ID and normalized registration.
+ * Vehicles are cached by ID, and the registration key maps to the ID, so a vehicle is only held once.
+ * Entries are evicted when a VehicleChangedEvent is committed, under the ID, the new registration key and the
+ * registration key of the vehicle that was cached, so a changed registration never resolves to a stale vehicle.
+ * Every eviction starts a new generation. A vehicle is only cached if no eviction happened since the generation read
+ * before it was loaded, so a vehicle loaded before a change commits is never cached after the change evicted it.
+ */
+@Component
+public class VehicleCache {
+
+    private final boolean enabled;
+    private final BoundedTtlCache<Long, VehicleEntity> vehiclesById;
+    private final BoundedTtlCache<String, Long> idsByRegistrationKey;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public VehicleCache(@Value("${vehicle.cache.enabled:true}") boolean enabled,
+                        @Value("${vehicle.cache.maxSize:10000}") int maxSize,
+                        @Value("${vehicle.cache.ttl:10m}") Duration ttl) {
+        this.enabled = enabled;
+        this.vehiclesById = new BoundedTtlCache<>(maxSize, ttl);
+        this.idsByRegistrationKey = new BoundedTtlCache<>(maxSize, ttl);
+    }
+
+    /**
+     * Get the cached vehicle with the ID.
+     * @param id the ID of the vehicle.
+     * @return the cached vehicle, or null if it is not cached.
+     */
+    public VehicleEntity getById(Long id) {
+        if (!enabled) {
+            return null;
+        }
+        return record(vehiclesById.get(id));
+    }
+
+    /**
+     * Get the cached vehicle with the normalized registration.
+     * @param registrationKey the normalized registration of the vehicle.
+     * @return the cached vehicle, or null if it is not cached.
+     */
+    public VehicleEntity getByRegistrationKey(String registrationKey) {
+        if (!enabled || registrationKey == null) {
+            return null;
+        }
+        Long id = idsByRegistrationKey.get(registrationKey);
+        VehicleEntity vehicle = id == null ? null : vehiclesById.get(id);
+        if (vehicle != null && !registrationKey.equals(vehicle.getRegistrationKey())) {
+            vehicle = null;
+        }
+        return record(vehicle);
+    }
+
+    /**
+     * Get the current generation, to be read before the vehicle to cache is loaded.
+     * @return the current generation.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Cache a vehicle that was read from the database under its ID and registration key, unless a vehicle was
+     * evicted since the provided generation. An eviction racing the put is caught by checking the generation again.
+     * @param generation the generation read before the vehicle was loaded.
+     * @param vehicle the vehicle to cache.
+     */
+    public void put(long generation, VehicleEntity vehicle) {
+        if (!enabled || vehicle == null || vehicle.getId() == null || generation != this.generation.get()) {
+            return;
+        }
+        vehiclesById.put(vehicle.getId(), vehicle);
+        if (vehicle.getRegistrationKey() != null) {
+            idsByRegistrationKey.put(vehicle.getRegistrationKey(), vehicle.getId());
+        }
+        if (generation != this.generation.get()) {
+            evict(vehicle.getId(), vehicle.getRegistrationKey());
+        }
+    }
+
+    /**
+     * Evict a vehicle under its ID and registration key, and under the registration key of the cached copy.
+     * @param id the ID of the vehicle, may be null.
+     * @param registrationKey the normalized registration of the vehicle, may be null.
+     */
+    public void evict(Long id, String registrationKey) {
+        generation.incrementAndGet();
+        if (id != null) {
+            VehicleEntity cached = vehiclesById.get(id);
+            if (cached != null && cached.getRegistrationKey() != null) {
+                idsByRegistrationKey.invalidate(cached.getRegistrationKey());
+            }
+            vehiclesById.invalidate(id);
+        }
+        if (registrationKey != null) {
+            idsByRegistrationKey.invalidate(registrationKey);
+        }
+    }
+
+    /**
+     * Evict the changed vehicle once the change is committed, or straight away if there is no transaction.
+     * @param event the change to the vehicle.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        evict(event.id(), event.registrationKey());
+    }
+
+    /**
+     * Evict every cached vehicle.
+     */
+    public void evictAll() {
+        generation.incrementAndGet();
+        vehiclesById.invalidateAll();
+        idsByRegistrationKey.invalidateAll();
+    }
+
+    private VehicleEntity record(VehicleEntity vehicle) {
+        if (vehicle == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return vehicle;
+    }
+
+    public int size() {
+        return vehiclesById.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return vehiclesById.getEvictionCount();
+    }
+
+    /**
+     * The share of lookups that were answered from the cache.
+     * @return the hit ratio between 0 and 1, or 0 before the first lookup.
+     */
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+}
@@ -0,0 +1,127 @@
+package co.uk.negura.workshop_vehicle_api.service;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChange;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleOutboxRepository;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class VehicleChangeService {
+
+    private final VehicleOutboxRepository vehicleOutboxRepository;
+
+    private final VehicleRepository vehicleRepository;
+
+    @Value("${vehicle.pagination.defaultPageSize:100}")
+    private int defaultPageSize;
+
+    @Value("${vehicle.pagination.maxPageSize:1000}")
+    private int maxPageSize;
+
+    @Value("${vehicle.outbox.settleTime:PT2S}")
+    private Duration settleTime;
+
+    @Value("${vehicle.tombstones.retention:P30D}")
+    private Duration tombstoneRetention;
+
+    public VehicleChangeService(VehicleOutboxRepository vehicleOutboxRepository, VehicleRepository vehicleRepository) {
+        this.vehicleOutboxRepository = vehicleOutboxRepository;
+        this.vehicleRepository = vehicleRepository;
+    }
+
+    /**
+     * Get the changes to vehicles made after the provided cursor, oldest first, so consumers can sync incrementally.
+     * Changes younger than {@code vehicle.outbox.settleTime} are held back: outbox IDs are assigned when a change is written
+     * but become visible when it commits, so a change with a lower ID can still be committing while a higher one is visible.
+     * The changes are read from the primary, a read replica further behind than the settle time would skip changes.
+     * @param after the sequence of the last change already seen, null to start from the oldest change kept.
+     * @param size the maximum number of changes to return, null for the configured default page size.
+     * @return ResponseEntity with the changes and the cursor to pass on the next request.
+     */
+    @Transactional
+    public ResponseEntity<?> getVehicleChanges(Long after, Integer size) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        if(size != null && size < 1){
+            map.put("object", "error");
+            map.put("status", HttpStatus.BAD_REQUEST);
+            map.put("message", "Bad Request, page size must be greater than 0");
+            return ResponseEntity.badRequest().body(map);
+        }
+        int pageSize = size == null ? defaultPageSize : Math.min(size, maxPageSize);
+        long cursor = after == null ? 0L : after;
+        List<VehicleChange> changes = vehicleOutboxRepository.findByIdGreaterThanAndCreatedAtBeforeOrderByIdAsc(
+                        cursor, Instant.now().minus(settleTime), Limit.of(pageSize))
+                .stream()
+                .map(VehicleChange::from)
+                .toList();
+        map.put("object", "changes");
+        map.put("size", changes.size());
+        map.put("nextCursor", changes.isEmpty() ? cursor : changes.getLast().sequence());
+        map.put("data", changes);
+        return ResponseEntity.ok().body(map);
+    }
+
+    /**
+     * Get the vehicles changed after the client's watermark, so a client holding a copy of the fleet only downloads
+     * what changed. The watermark is the updated timestamp and ID of the last change the client has seen, the response
+     * carries the watermark to pass on the next request and whether more changes are waiting.
+     * Changes younger than {@code vehicle.outbox.settleTime} are held back, as a change stamped earlier may still be committing.
+     * The changes are read from the primary, a read replica further behind than the settle time would skip changes.
+     * @param since the updated timestamp of the last change already seen, null for a first sync.
+     * @param afterId the ID of the last change already seen, null for a first sync.
+     * @param size the maximum number of changes to return, null for the configured default page size.
+     * @return ResponseEntity with the changed vehicles, the IDs of the deleted vehicles and the next watermark,
+     * or 410 Gone if the watermark is older than the tombstones that are kept.
+     */
+    @Transactional
+    public ResponseEntity<?> getVehicleDelta(Instant since, Long afterId, Integer size) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        if(size != null && size < 1){
+            map.put("object", "error");
+            map.put("status", HttpStatus.BAD_REQUEST);
+            map.put("message", "Bad Request, page size must be greater than 0");
+            return ResponseEntity.badRequest().body(map);
+        }
+        Instant now = Instant.now();
+        if(since != null && since.isBefore(now.minus(tombstoneRetention))){
+            map.put("object", "error");
+            map.put("status", HttpStatus.GONE);
+            map.put("message", "Watermark is older than the deletions that are kept, reload all vehicles");
+            return ResponseEntity.status(HttpStatus.GONE).body(map);
+        }
+        int pageSize = size == null ? defaultPageSize : Math.min(size, maxPageSize);
+        Instant watermark = since == null ? Instant.EPOCH : since;
+        long watermarkId = afterId == null ? 0L : afterId;
+        List<VehicleEntity> changed = vehicleRepository.findChangedSince(watermark, watermarkId, now.minus(settleTime), pageSize);
+        List<VehicleEntity> vehicles = new ArrayList<>(changed.size());
+        List<Long> deleted = new ArrayList<>();
+        for (VehicleEntity vehicle : changed) {
+            if (vehicle.isDeleted()) {
+                deleted.add(vehicle.getId());
+            } else {
+                vehicles.add(vehicle);
+            }
+        }
+        map.put("object", "delta");
+        map.put("size", changed.size());
+        map.put("hasMore", changed.size() == pageSize);
+        map.put("nextSince", changed.isEmpty() ? watermark : changed.getLast().getUpdatedAt());
+        map.put("nextAfterId", changed.isEmpty() ? watermarkId : changed.getLast().getId());
+        map.put("data", vehicles);
+        map.put("deleted", deleted);
+        return ResponseEntity.ok().body(map);
+    }
+}
@@ -0,0 +1,19 @@
+package co.uk.negura.workshop_vehicle_api.service;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChange;
+
+import java.util.List;
+
+/**
+ * Where the VehicleOutboxPublisher sends the committed changes to vehicles, selected with {@code vehicle.outbox.sink}.
+ * Changes are delivered at least once, in outbox order within a batch, so consumers de-duplicate them by sequence.
+ */
+public interface VehicleChangeSink {
+
+    /**
+     * Publish a batch of changes, returning only once the sink has accepted all of them.
+     * @param changes the changes to publish, ordered by sequence.
+     * @throws RuntimeException if the batch could not be published, it is then retried with the next drain of the outbox.
+     */
+    void publish(List<VehicleChange> changes);
+}
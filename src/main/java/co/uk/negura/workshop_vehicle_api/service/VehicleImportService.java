@@ -0,0 +1,365 @@
+package co.uk.negura.workshop_vehicle_api.service;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.model.VehicleImportResult;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+@Service
+public class VehicleImportService {
+
+    private static final String INSERT_VEHICLE_SQL = "INSERT INTO vehicles (registration, make, model, colour, " +
+            "colour_code, is_drivable, vin, engine_size, fuel_type, transmission, body_type, year, mileage, " +
+            "registration_key, vin_key, created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0) " +
+            "ON DUPLICATE KEY UPDATE id = id";
+
+    private static final String SELECT_CREATED_SQL = "SELECT id, registration_key FROM vehicles " +
+            "WHERE created_at = ? AND registration_key IN (%s)";
+
+    private static final String UPDATE_UPDATED_AT_SQL = "UPDATE vehicles SET updated_at = ? WHERE id IN (%s)";
+
+    private static final String INSERT_OUTBOX_SQL = "INSERT INTO vehicle_outbox (type, vehicle_id, registration_key, " +
+            "payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private final VehicleRepository vehicleRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectReader jsonReader;
+
+    private final ObjectReader csvReader;
+
+    private final VehicleListCache vehicleListCache;
+
+    @Value("${vehicle.import.batchSize:500}")
+    private int batchSize;
+
+    public VehicleImportService(VehicleRepository vehicleRepository, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                VehicleListCache vehicleListCache, PlatformTransactionManager transactionManager) {
+        this.vehicleRepository = vehicleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.vehicleListCache = vehicleListCache;
+        this.jsonReader = objectMapper.readerFor(VehicleEntity.class);
+        this.csvReader = new CsvMapper()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readerFor(VehicleEntity.class)
+                .with(CsvSchema.emptySchema().withHeader());
+    }
+
+    /**
+     * Import the vehicles of a JSON array, reading the array one element at a time.
+     * @param inputStream the request body containing the JSON array of vehicles.
+     * @return ResponseEntity with the summary and per-row results of the import.
+     */
+    public ResponseEntity<?> importJson(InputStream inputStream) {
+        return importVehicles(jsonReader, inputStream);
+    }
+
+    /**
+     * Import the vehicles of a CSV document with a header row naming the vehicle properties,
+     * e.g. {@code registration,make,model,colour,vin}, reading it one line at a time.
+     * @param inputStream the request body containing the CSV document.
+     * @return ResponseEntity with the summary and per-row results of the import.
+     */
+    public ResponseEntity<?> importCsv(InputStream inputStream) {
+        return importVehicles(csvReader, inputStream);
+    }
+
+    /**
+     * Read the vehicles from the input stream and insert them in batches of {@code vehicle.import.batchSize}.
+     * Registrations repeated within the import are de-duplicated in memory, registrations that already exist are
+     * found with one query per batch, and the batch is then written with a single JDBC batch update.
+     * Each batch and the outbox changes of the vehicles it created are committed in one transaction.
+     * A row that cannot be parsed stops the import, the rows before it stay imported.
+     * @param reader the reader for the format of the input stream.
+     * @param inputStream the request body containing the vehicles.
+     * @return ResponseEntity with the summary and per-row results of the import.
+     */
+    private ResponseEntity<?> importVehicles(ObjectReader reader, InputStream inputStream) {
+        List<VehicleImportResult> results = new ArrayList<>();
+        Set<String> seenRegistrationKeys = new HashSet<>();
+        List<PendingVehicle> batch = new ArrayList<>(batchSize);
+        int row = 0;
+        String error = null;
+        try (MappingIterator<VehicleEntity> vehicles = reader.readValues(inputStream)) {
+            while (vehicles.hasNextValue()) {
+                VehicleEntity vehicle = vehicles.nextValue();
+                row++;
+                VehicleImportResult invalid = validate(row, vehicle);
+                if (invalid != null) {
+                    results.add(invalid);
+                    continue;
+                }
+                String registrationKey = VehicleEntity.normalizeKey(vehicle.getRegistration());
+                if (!seenRegistrationKeys.add(registrationKey)) {
+                    results.add(new VehicleImportResult(row, vehicle.getRegistration(), VehicleImportResult.DUPLICATE,
+                            "Registration is repeated in the import"));
+                    continue;
+                }
+                batch.add(new PendingVehicle(row, vehicle, registrationKey));
+                if (batch.size() == batchSize) {
+                    results.addAll(importBatch(batch));
+                    batch.clear();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            error = "Import stopped at row " + (row + 1) + ", the row could not be read";
+            results.add(new VehicleImportResult(row + 1, null, VehicleImportResult.INVALID, error));
+        }
+        if (!batch.isEmpty()) {
+            results.addAll(importBatch(batch));
+        }
+        if (results.stream().anyMatch(result -> VehicleImportResult.CREATED.equals(result.status()))) {
+            vehicleListCache.invalidate();
+        }
+        return getImportResponseEntity(results, error);
+    }
+
+    /**
+     * Check the fields that are required by the vehicles table, and that every value fits its column,
+     * so no row of a batch fails or is truncated by the database.
+     * @param row the position of the row being imported.
+     * @param vehicle the vehicle read from the row.
+     * @return the invalid result of the row, or null if the vehicle is valid.
+     */
+    private VehicleImportResult validate(int row, VehicleEntity vehicle) {
+        if (vehicle == null || VehicleEntity.normalizeKey(vehicle.getRegistration()) == null) {
+            return new VehicleImportResult(row, null, VehicleImportResult.INVALID, "Vehicle registration is required");
+        }
+        if (isBlank(vehicle.getMake()) || isBlank(vehicle.getModel())) {
+            return new VehicleImportResult(row, vehicle.getRegistration(), VehicleImportResult.INVALID,
+                    "Vehicle make and model are required");
+        }
+        String tooLong = tooLong(Map.of("registration", vehicle.getRegistration(), "make", vehicle.getMake(),
+                "model", vehicle.getModel(), "colour", text(vehicle.getColour()), "colourCode", text(vehicle.getColourCode()),
+                "vin", text(vehicle.getVIN()), "fuelType", text(vehicle.getFuelType()),
+                "transmission", text(vehicle.getTransmission()), "bodyType", text(vehicle.getBodyType())));
+        if (tooLong != null) {
+            return new VehicleImportResult(row, vehicle.getRegistration(), VehicleImportResult.INVALID,
+                    "Vehicle " + tooLong + " must be at most " + MAX_TEXT_LENGTH + " characters");
+        }
+        String specificationError = VehicleEntity.specificationError(
+                vehicle.getEngineSize(), vehicle.getYear(), vehicle.getMileage());
+        if (specificationError != null) {
+            return new VehicleImportResult(row, vehicle.getRegistration(), VehicleImportResult.INVALID, specificationError);
+        }
+        return null;
+    }
+
+    /**
+     * Find a text property longer than its VARCHAR(255) column.
+     * @param values the text properties of the vehicle by name.
+     * @return the name of a property that is too long, or null if they all fit.
+     */
+    private static String tooLong(Map<String, String> values) {
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            if (value.getValue().codePointCount(0, value.getValue().length()) > MAX_TEXT_LENGTH) {
+                return value.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static String text(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Insert a batch of vehicles, skipping the registrations that already exist.
+     * A vehicle that loses a race with a concurrent insert, or whose VIN already exists, is left as it is by
+     * ON DUPLICATE KEY UPDATE, unlike INSERT IGNORE this does not turn data errors into warnings.
+     * The update counts cannot tell the two apart once the driver rewrites the batch, so the vehicles created
+     * are read back by the creation time stamped on the whole batch, and a CREATED change is written to the outbox
+     * for each of them in the same transaction, as VehicleOutboxWriter does for a single vehicle.
+     * The changes and the updated time of the created vehicles are stamped once the batch is written, just before
+     * it commits, so a batch that takes longer than {@code vehicle.outbox.settleTime} to write is not already settled,
+     * and skipped by the consumers of /changes and /delta, by the time it becomes visible.
+     * @param batch the vehicles to insert.
+     * @return the outcome of each vehicle, once the batch is committed.
+     */
+    private List<VehicleImportResult> importBatch(List<PendingVehicle> batch) {
+        List<VehicleImportResult> results = new ArrayList<>(batch.size());
+        transactionTemplate.executeWithoutResult(status -> insertBatch(batch, results));
+        return results;
+    }
+
+    /**
+     * Insert a batch of vehicles and their outbox changes in the current transaction.
+     * @param batch the vehicles to insert.
+     * @param results the results to add the outcome of each vehicle to.
+     */
+    private void insertBatch(List<PendingVehicle> batch, List<VehicleImportResult> results) {
+        Set<String> existingKeys = new HashSet<>(vehicleRepository.findExistingRegistrationKeys(
+                batch.stream().map(PendingVehicle::registrationKey).toList()));
+        List<PendingVehicle> inserts = new ArrayList<>(batch.size());
+        for (PendingVehicle pending : batch) {
+            if (existingKeys.contains(pending.registrationKey())) {
+                results.add(new VehicleImportResult(pending.row(), pending.vehicle().getRegistration(),
+                        VehicleImportResult.DUPLICATE, "Vehicle already exists"));
+            } else {
+                inserts.add(pending);
+            }
+        }
+        if (inserts.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+        jdbcTemplate.batchUpdate(INSERT_VEHICLE_SQL, inserts, inserts.size(), (ps, pending) -> {
+            VehicleEntity vehicle = pending.vehicle();
+            ps.setString(1, vehicle.getRegistration());
+            ps.setString(2, vehicle.getMake());
+            ps.setString(3, vehicle.getModel());
+            ps.setString(4, vehicle.getColour());
+            ps.setString(5, vehicle.getColourCode());
+            ps.setBoolean(6, vehicle.isDrivable());
+            ps.setString(7, vehicle.getVIN());
+            ps.setObject(8, vehicle.getEngineSize(), Types.DECIMAL);
+            ps.setString(9, vehicle.getFuelType());
+            ps.setString(10, vehicle.getTransmission());
+            ps.setString(11, vehicle.getBodyType());
+            ps.setObject(12, vehicle.getYear(), Types.INTEGER);
+            ps.setObject(13, vehicle.getMileage(), Types.INTEGER);
+            ps.setString(14, pending.registrationKey());
+            ps.setString(15, VehicleEntity.normalizeKey(vehicle.getVIN()));
+            ps.setTimestamp(16, now);
+            ps.setTimestamp(17, now);
+        });
+        Map<String, Long> createdIds = findCreatedIds(inserts, now);
+        writeOutbox(inserts, createdIds);
+        for (PendingVehicle pending : inserts) {
+            if (createdIds.containsKey(pending.registrationKey())) {
+                results.add(new VehicleImportResult(pending.row(), pending.vehicle().getRegistration(),
+                        VehicleImportResult.CREATED, null));
+            } else {
+                results.add(new VehicleImportResult(pending.row(), pending.vehicle().getRegistration(),
+                        VehicleImportResult.DUPLICATE, "Vehicle already exists"));
+            }
+        }
+    }
+
+    /**
+     * Find the vehicles of the batch that were created by it rather than already existing.
+     * @param inserts the vehicles the batch tried to insert.
+     * @param createdAt the creation time stamped on every vehicle of the batch.
+     * @return the IDs of the created vehicles by registration key.
+     */
+    private Map<String, Long> findCreatedIds(List<PendingVehicle> inserts, Timestamp createdAt) {
+        String placeholders = String.join(", ", Collections.nCopies(inserts.size(), "?"));
+        Object[] args = new Object[inserts.size() + 1];
+        args[0] = createdAt;
+        for (int i = 0; i < inserts.size(); i++) {
+            args[i + 1] = inserts.get(i).registrationKey();
+        }
+        Map<String, Long> createdIds = new HashMap<>();
+        jdbcTemplate.query(SELECT_CREATED_SQL.formatted(placeholders),
+                rs -> {
+                    createdIds.put(rs.getString("registration_key"), rs.getLong("id"));
+                }, args);
+        return createdIds;
+    }
+
+    /**
+     * Write a CREATED change, with the JSON form of the vehicle, to the outbox for every vehicle created by the batch,
+     * in the order of the rows, with a single JDBC batch update.
+     * The updated time of the created vehicles is stamped again first, and the changes are stamped as they are written.
+     * @param inserts the vehicles the batch tried to insert.
+     * @param createdIds the IDs of the created vehicles by registration key.
+     */
+    private void writeOutbox(List<PendingVehicle> inserts, Map<String, Long> createdIds) {
+        if (createdIds.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(createdIds.size(), "?"));
+        List<Object> args = new ArrayList<>(createdIds.size() + 1);
+        args.add(Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS)));
+        args.addAll(createdIds.values());
+        jdbcTemplate.update(UPDATE_UPDATED_AT_SQL.formatted(placeholders), args.toArray());
+        Map<Long, VehicleEntity> vehicles = new HashMap<>();
+        for (VehicleEntity vehicle : vehicleRepository.findAllById(createdIds.values())) {
+            vehicles.put(vehicle.getId(), vehicle);
+        }
+        List<VehicleEntity> created = inserts.stream()
+                .map(pending -> vehicles.get(createdIds.get(pending.registrationKey())))
+                .filter(Objects::nonNull)
+                .toList();
+        Timestamp writtenAt = Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX_SQL, created, created.size(), (ps, vehicle) -> {
+            ps.setString(1, VehicleChangedEvent.Type.CREATED.name());
+            ps.setLong(2, vehicle.getId());
+            ps.setString(3, vehicle.getRegistrationKey());
+            try {
+                ps.setString(4, objectMapper.writeValueAsString(vehicle));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Vehicle " + vehicle.getId() + " could not be written to the outbox", e);
+            }
+            ps.setTimestamp(5, writtenAt);
+        });
+    }
+
+    /**
+     * Build the response summarising the import, the per-row results are ordered by row.
+     * @param results the results of every imported row.
+     * @param error the error that stopped the import, null if every row was read.
+     * @return ResponseEntity with the status of the request.
+     */
+    private ResponseEntity<?> getImportResponseEntity(List<VehicleImportResult> results, String error) {
+        results.sort((first, second) -> Integer.compare(first.row(), second.row()));
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("object", error == null ? "import" : "error");
+        map.put("status", error == null ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
+        if (error != null) {
+            map.put("message", error);
+        }
+        map.put("total", results.size());
+        map.put("created", results.stream().filter(result -> VehicleImportResult.CREATED.equals(result.status())).count());
+        map.put("duplicates", results.stream().filter(result -> VehicleImportResult.DUPLICATE.equals(result.status())).count());
+        map.put("invalid", results.stream().filter(result -> VehicleImportResult.INVALID.equals(result.status())).count());
+        map.put("results", results);
+        return error == null ? ResponseEntity.ok().body(map) : ResponseEntity.badRequest().body(map);
+    }
+
+    private record PendingVehicle(int row, VehicleEntity vehicle, String registrationKey) {
+    }
+}
@@ -0,0 +1,128 @@
+package co.uk.negura.workshop_vehicle_api.service;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of the serialized list of every vehicle, as JSON and gzipped JSON, so that identical list requests between writes
+ * are answered without a query or serialization.
+ * Every change to a vehicle starts a new generation once it is committed. A payload is only served for the generation
+ * it was built in, so a payload built from the vehicles read before a change is never served after it.
+ */
+@Component
+public class VehicleListCache {
+
+    private final boolean enabled;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicReference<Entry> entry = new AtomicReference<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public VehicleListCache(@Value("${vehicle.listCache.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Get the cached payload of the current generation.
+     * @return the payload, or null if none was built since the last change.
+     */
+    public Payload get() {
+        Entry current = enabled ? entry.get() : null;
+        if (current == null || current.generation() != generation.get()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return current.payload();
+    }
+
+    /**
+     * Get the current generation, to be read before the vehicles a payload is built from.
+     * @return the current generation.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Cache a payload built from the vehicles read in the provided generation.
+     * @param generation the generation read before the vehicles were read.
+     * @param payload the payload to cache.
+     */
+    public void put(long generation, Payload payload) {
+        if (enabled && generation == this.generation.get()) {
+            entry.set(new Entry(generation, payload));
+        }
+    }
+
+    /**
+     * Start a new generation once the change to a vehicle is committed, or straight away if there is no transaction.
+     * @param event the change to the vehicle.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        invalidate();
+    }
+
+    /**
+     * Start a new generation, dropping the cached payload.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        if (entry.getAndSet(null) != null) {
+            evictions.incrementAndGet();
+        }
+    }
+
+    public int size() {
+        return entry.get() == null ? 0 : 1;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * The serialized list of vehicles.
+     * @param json the JSON array of vehicles
+     * @param gzip the JSON array of vehicles, gzipped
+     */
+    public record Payload(byte[] json, byte[] gzip) {
+
+        /**
+         * Build the payload of a serialized list, gzipping it once.
+         * @param json the JSON array of vehicles.
+         * @return the payload.
+         */
+        public static Payload of(byte[] json) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(json.length / 4, 64));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Payload(json, compressed.toByteArray());
+        }
+    }
+
+    private record Entry(long generation, Payload payload) {
+    }
+}
@@ -0,0 +1,91 @@
+package co.uk.negura.workshop_vehicle_api.service;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChange;
+import co.uk.negura.workshop_vehicle_api.model.VehicleOutboxEvent;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Drains the outbox to the VehicleChangeSink in batches of {@code vehicle.outbox.batchSize}.
+ * Each batch is locked, published and marked as published in one transaction. A batch the sink rejects stays
+ * unpublished and is retried on the next drain, so a change is published at least once.
+ */
+@Component
+public class VehicleOutboxPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(VehicleOutboxPublisher.class);
+
+    private final VehicleOutboxRepository vehicleOutboxRepository;
+
+    private final VehicleChangeSink vehicleChangeSink;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final Duration retention;
+
+    public VehicleOutboxPublisher(VehicleOutboxRepository vehicleOutboxRepository, VehicleChangeSink vehicleChangeSink,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${vehicle.outbox.batchSize:100}") int batchSize,
+                                  @Value("${vehicle.outbox.retention:P7D}") Duration retention) {
+        this.vehicleOutboxRepository = vehicleOutboxRepository;
+        this.vehicleChangeSink = vehicleChangeSink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retention = retention;
+    }
+
+    /**
+     * Publish every pending change, one batch at a time, until the outbox is drained or the sink fails.
+     * @return the number of changes published.
+     */
+    @Scheduled(fixedDelayString = "${vehicle.outbox.publishInterval:PT1S}")
+    public int publishPending() {
+        int total = 0;
+        try {
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> publishBatch());
+                total += published == null ? 0 : published;
+            } while (published != null && published == batchSize);
+        } catch (RuntimeException e) {
+            logger.warn("Publishing vehicle changes failed, {} published before the failure, retrying on the next drain",
+                    total, e);
+        }
+        return total;
+    }
+
+    private int publishBatch() {
+        List<VehicleOutboxEvent> events = vehicleOutboxRepository.findByPublishedAtIsNullOrderByIdAsc(Limit.of(batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        vehicleChangeSink.publish(events.stream().map(VehicleChange::from).toList());
+        vehicleOutboxRepository.markPublished(events.stream().map(VehicleOutboxEvent::getId).toList(), Instant.now());
+        return events.size();
+    }
+
+    /**
+     * Delete the changes that were published longer than {@code vehicle.outbox.retention} ago.
+     * Consumers syncing from a cursor older than that should reload the vehicles in full.
+     */
+    @Scheduled(fixedDelayString = "${vehicle.outbox.purgeInterval:PT1H}", initialDelayString = "${vehicle.outbox.purgeInterval:PT1H}")
+    public void purgePublished() {
+        int deleted = vehicleOutboxRepository.deletePublishedBefore(Instant.now().minus(retention));
+        if (deleted > 0) {
+            logger.info("Purged {} published vehicle changes", deleted);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package co.uk.negura.workshop_vehicle_api.service;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.model.VehicleOutboxEvent;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+
+/**
+ * Writes every VehicleChangedEvent to the outbox table just before the transaction of the change commits,
+ * so the change and its outbox row are committed, or rolled back, together.
+ * Changes made outside a transaction are not written, which is why the writes of the VehicleService are transactional.
+ */
+@Component
+public class VehicleOutboxWriter {
+
+    private final VehicleOutboxRepository vehicleOutboxRepository;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    public VehicleOutboxWriter(VehicleOutboxRepository vehicleOutboxRepository, EntityManager entityManager,
+                               ObjectMapper objectMapper) {
+        this.vehicleOutboxRepository = vehicleOutboxRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write the change, with the JSON form of the vehicle as it is about to be committed, to the outbox.
+     * @param event the change to the vehicle.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        String payload = null;
+        if (event.type() != VehicleChangedEvent.Type.DELETED) {
+            VehicleEntity vehicle = entityManager.find(VehicleEntity.class, event.id());
+            try {
+                payload = vehicle == null ? null : objectMapper.writeValueAsString(vehicle);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Vehicle " + event.id() + " could not be written to the outbox", e);
+            }
+        }
+        vehicleOutboxRepository.save(new VehicleOutboxEvent(event.type(), event.id(), event.registrationKey(), payload,
+                Instant.now()));
+    }
+}
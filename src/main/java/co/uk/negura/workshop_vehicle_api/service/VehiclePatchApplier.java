@@ -0,0 +1,211 @@
+package co.uk.negura.workshop_vehicle_api.service;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Applies JSON Patch (RFC 6902) and JSON Merge Patch (RFC 7396) documents to a VehicleEntity in place.
+ * Patches that only set or remove the known top-level properties of a vehicle are applied field by field,
+ * without converting the vehicle to a JSON tree and back. Any other patch falls back to the generic
+ * json-patch implementation, applied to the JSON form of the vehicle.
+ */
+@Component
+public class VehiclePatchApplier {
+
+    private static final Map<String, FieldSetter> FIELD_SETTERS = new LinkedHashMap<>();
+
+    static {
+        FIELD_SETTERS.put("registration", (vehicle, value) -> vehicle.setRegistration(requiredText("registration", value)));
+        FIELD_SETTERS.put("make", (vehicle, value) -> vehicle.setMake(requiredText("make", value)));
+        FIELD_SETTERS.put("model", (vehicle, value) -> vehicle.setModel(requiredText("model", value)));
+        FIELD_SETTERS.put("colour", (vehicle, value) -> vehicle.setColour(text(value)));
+        FIELD_SETTERS.put("colourCode", (vehicle, value) -> vehicle.setColourCode(text(value)));
+        FIELD_SETTERS.put("drivable", (vehicle, value) -> vehicle.setDrivable(value != null && value.asBoolean()));
+        FIELD_SETTERS.put("vin", (vehicle, value) -> vehicle.setVIN(text(value)));
+        FIELD_SETTERS.put("engineSize", (vehicle, value) -> vehicle.setEngineSize(decimal("engineSize", value)));
+        FIELD_SETTERS.put("fuelType", (vehicle, value) -> vehicle.setFuelType(text(value)));
+        FIELD_SETTERS.put("transmission", (vehicle, value) -> vehicle.setTransmission(text(value)));
+        FIELD_SETTERS.put("bodyType", (vehicle, value) -> vehicle.setBodyType(text(value)));
+        FIELD_SETTERS.put("year", (vehicle, value) -> vehicle.setYear(integer("year", value)));
+        FIELD_SETTERS.put("mileage", (vehicle, value) -> vehicle.setMileage(integer("mileage", value)));
+    }
+
+    private final ObjectMapper objectMapper;
+
+    public VehiclePatchApplier(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Apply a JSON Patch to the vehicle.
+     * Patches made only of add, replace and remove operations on known properties are applied field by field.
+     * @param patch the JSON Patch document, an array of operations.
+     * @param vehicle the vehicle to update.
+     * @throws JsonPatchException if the patch cannot be applied, leaves a required property empty or a number out of range.
+     * @throws IOException if the patch is not a valid JSON Patch document.
+     */
+    public void applyJsonPatch(JsonNode patch, VehicleEntity vehicle) throws JsonPatchException, IOException {
+        if (isFieldLevelJsonPatch(patch)) {
+            for (JsonNode operation : patch) {
+                String field = operation.get("path").asText().substring(1);
+                JsonNode value = "remove".equals(operation.get("op").asText()) ? null : operation.get("value");
+                FIELD_SETTERS.get(field).set(vehicle, value);
+            }
+        } else {
+            JsonPatch jsonPatch = JsonPatch.fromJson(patch);
+            copyFields(jsonPatch.apply(objectMapper.valueToTree(vehicle)), vehicle);
+        }
+        checkSpecifications(vehicle);
+    }
+
+    /**
+     * Apply a JSON Merge Patch to the vehicle.
+     * Merge patches made only of known properties are applied field by field, a null value clears the property.
+     * @param patch the JSON Merge Patch document, an object with the properties to change.
+     * @param vehicle the vehicle to update.
+     * @throws JsonPatchException if the patch cannot be applied, leaves a required property empty or a number out of range.
+     * @throws IOException if the patch is not a valid JSON Merge Patch document.
+     */
+    public void applyMergePatch(JsonNode patch, VehicleEntity vehicle) throws JsonPatchException, IOException {
+        if (!patch.isObject()) {
+            throw new JsonPatchException("A merge patch for a vehicle must be a JSON object");
+        }
+        if (isFieldLevelMergePatch(patch)) {
+            Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue().isNull() ? null : field.getValue();
+                FIELD_SETTERS.get(field.getKey()).set(vehicle, value);
+            }
+        } else {
+            JsonMergePatch mergePatch = JsonMergePatch.fromJson(patch);
+            copyFields(mergePatch.apply(objectMapper.valueToTree(vehicle)), vehicle);
+        }
+        checkSpecifications(vehicle);
+    }
+
+    /**
+     * Check if every operation of the JSON Patch is an add, replace or remove of a known top-level property.
+     * @param patch the JSON Patch document.
+     * @return true if the patch can be applied field by field.
+     */
+    private boolean isFieldLevelJsonPatch(JsonNode patch) {
+        if (!patch.isArray()) {
+            return false;
+        }
+        for (JsonNode operation : patch) {
+            JsonNode op = operation.get("op");
+            JsonNode path = operation.get("path");
+            if (op == null || path == null || !path.isTextual() || !path.asText().startsWith("/")
+                    || !FIELD_SETTERS.containsKey(path.asText().substring(1))) {
+                return false;
+            }
+            switch (op.asText()) {
+                case "add", "replace" -> {
+                    if (!operation.has("value") || operation.get("value").isContainerNode()) {
+                        return false;
+                    }
+                }
+                case "remove" -> {
+                }
+                default -> {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if every property of the JSON Merge Patch is a known top-level property with a scalar or null value.
+     * @param patch the JSON Merge Patch document.
+     * @return true if the patch can be applied field by field.
+     */
+    private boolean isFieldLevelMergePatch(JsonNode patch) {
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!FIELD_SETTERS.containsKey(field.getKey()) || field.getValue().isContainerNode()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copy every known property of the patched JSON form of the vehicle back into the vehicle.
+     * The ID is never copied, and a property missing from the patched document is cleared.
+     * @param patched the JSON form of the vehicle after the patch.
+     * @param vehicle the vehicle to update.
+     * @throws JsonPatchException if the patched document leaves a required property empty.
+     */
+    private void copyFields(JsonNode patched, VehicleEntity vehicle) throws JsonPatchException {
+        for (Map.Entry<String, FieldSetter> setter : FIELD_SETTERS.entrySet()) {
+            setter.getValue().set(vehicle, patched.get(setter.getKey()));
+        }
+    }
+
+    /**
+     * Check the patched numeric specifications still fit their columns.
+     * @param vehicle the patched vehicle.
+     * @throws JsonPatchException if the engine size, year or mileage is out of range.
+     */
+    private static void checkSpecifications(VehicleEntity vehicle) throws JsonPatchException {
+        String error = VehicleEntity.specificationError(vehicle.getEngineSize(), vehicle.getYear(), vehicle.getMileage());
+        if (error != null) {
+            throw new JsonPatchException(error);
+        }
+    }
+
+    private static String text(JsonNode value) {
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String requiredText(String field, JsonNode value) throws JsonPatchException {
+        String text = text(value);
+        if (text == null || text.isBlank()) {
+            throw new JsonPatchException("Vehicle " + field + " is required");
+        }
+        return text;
+    }
+
+    private static Integer integer(String field, JsonNode value) throws JsonPatchException {
+        String text = text(value);
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(text.trim());
+        } catch (NumberFormatException e) {
+            throw new JsonPatchException("Vehicle " + field + " must be a whole number");
+        }
+    }
+
+    private static BigDecimal decimal(String field, JsonNode value) throws JsonPatchException {
+        String text = text(value);
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(text.trim());
+        } catch (NumberFormatException e) {
+            throw new JsonPatchException("Vehicle " + field + " must be a number");
+        }
+    }
+
+    @FunctionalInterface
+    private interface FieldSetter {
+        void set(VehicleEntity vehicle, JsonNode value) throws JsonPatchException;
+    }
+}
@@ -1,91 +1,257 @@
 package co.uk.negura.workshop_vehicle_api.service;
 
+import co.uk.negura.workshop_vehicle_api.model.VehicleBatchRequest;
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
 import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.model.VehicleFields;
+import co.uk.negura.workshop_vehicle_api.model.VehicleSearchCriteria;
 import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleSpecifications;
+import co.uk.negura.workshop_vehicle_api.util.ETagUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchException;
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class VehicleService {
 
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of(
+            "id", "registration", "make", "model", "fuelType", "transmission", "bodyType", "year");
+
     private final VehicleRepository vehicleRepository;
 
-    public VehicleService(VehicleRepository vehicleRepository) {
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    private final VehicleCache vehicleCache;
+
+    private final VehiclePatchApplier vehiclePatchApplier;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final VehicleListCache vehicleListCache;
+
+    @Value("${vehicle.pagination.defaultPageSize:100}")
+    private int defaultPageSize;
+
+    @Value("${vehicle.pagination.maxPageSize:1000}")
+    private int maxPageSize;
+
+    @Value("${vehicle.batch.maxSize:500}")
+    private int maxBatchSize;
+
+    @Value("${vehicle.batch.chunkSize:100}")
+    private int batchChunkSize;
+
+    @Value("${vehicle.datasource.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    public VehicleService(VehicleRepository vehicleRepository, EntityManager entityManager, ObjectMapper objectMapper,
+                          VehicleCache vehicleCache, VehiclePatchApplier vehiclePatchApplier,
+                          ApplicationEventPublisher eventPublisher, VehicleListCache vehicleListCache) {
         this.vehicleRepository = vehicleRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.vehicleCache = vehicleCache;
+        this.vehiclePatchApplier = vehiclePatchApplier;
+        this.eventPublisher = eventPublisher;
+        this.vehicleListCache = vehicleListCache;
     }
 
     /**
-     * Validate the token and return the response entity.
+     * Save a new vehicle with a single insert.
+     * Duplicates are detected by the unique indexes on the normalized registration and VIN rather than a prior lookup,
+     * which also closes the window in which two concurrent requests could create the same vehicle.
+     * The vehicle and its outbox change are committed in one transaction.
      * @param vehicleEntity VehicleEntity object to be saved.
      * @return ResponseEntity with the status of the request.
      */
+    @Transactional
     public ResponseEntity<?> createVehicle(VehicleEntity vehicleEntity) {
         Map<String, Object> map = new LinkedHashMap<>();
-        if(vehicleRepository.findByRegistration(vehicleEntity.getRegistration()).isPresent()){
+        String specificationError = VehicleEntity.specificationError(
+                vehicleEntity.getEngineSize(), vehicleEntity.getYear(), vehicleEntity.getMileage());
+        if (specificationError != null) {
             map.put("object", "error");
             map.put("status", "400");
-            map.put("message", "Vehicle already exists");
+            map.put("message", specificationError);
             return ResponseEntity.badRequest().body(map);
-        }else{
-            VehicleEntity newVehicle = vehicleRepository.save(vehicleEntity);
-            return ResponseEntity.ok().body(newVehicle);
+        }
+        try {
+            VehicleEntity newVehicle = vehicleRepository.saveAndFlush(vehicleEntity);
+            eventPublisher.publishEvent(new VehicleChangedEvent(
+                    VehicleChangedEvent.Type.CREATED, newVehicle.getId(), newVehicle.getRegistrationKey()));
+            return ResponseEntity.ok().eTag(ETagUtil.toETag(newVehicle.getVersion())).body(newVehicle);
+        } catch (DataIntegrityViolationException e) {
+            setRollbackOnly();
+            map.put("object", "error");
+            map.put("status", "400");
+            map.put("message", isDuplicateVehicle(e) ? "Vehicle already exists" : "Error creating vehicle, check the request body.");
+            return ResponseEntity.badRequest().body(map);
+        }
+    }
+
+    /**
+     * Roll back the transaction of the current write once it returns, for writes that fail with an error response
+     * instead of an exception, so neither a partial change nor its outbox change is committed.
+     */
+    private static void setRollbackOnly() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
         }
     }
 
     /**
-     * Update vehicle details by using the ID to find it and update it with the new vehicle details from the JsonPatch.
+     * Check if the data integrity violation was raised by the unique index on the registration or VIN key.
+     * @param e the exception raised when saving the vehicle.
+     * @return true if the vehicle already exists.
+     */
+    private boolean isDuplicateVehicle(DataIntegrityViolationException e) {
+        if (e.getCause() instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+            return violation.getConstraintName().toLowerCase(Locale.ROOT).contains("uk_vehicles_");
+        }
+        return false;
+    }
+
+    /**
+     * Update vehicle details by using the ID to find it and update it with the new vehicle details from the JSON Patch.
+     * @param id ID of the vehicle to be updated.
+     * @param patch JSON Patch document to be applied to the vehicle.
+     * @param ifMatch the If-Match header of the request, null if the update is unconditional.
+     * @return ResponseEntity with the status of the request.
+     */
+    @Transactional
+    public ResponseEntity<?> updateVehicle(Long id, JsonNode patch, String ifMatch) {
+        return patchVehicle(id, patch, false, ifMatch);
+    }
+
+    /**
+     * Update vehicle details by using the ID to find it and update it with the new vehicle details from the JSON Merge Patch.
+     * @param id ID of the vehicle to be updated.
+     * @param patch JSON Merge Patch document to be applied to the vehicle.
+     * @param ifMatch the If-Match header of the request, null if the update is unconditional.
+     * @return ResponseEntity with the status of the request.
+     */
+    @Transactional
+    public ResponseEntity<?> mergeUpdateVehicle(Long id, JsonNode patch, String ifMatch) {
+        return patchVehicle(id, patch, true, ifMatch);
+    }
+
+    /**
+     * Load the vehicle once, apply the patch to it in place and save it.
+     * The update is rejected with 412 Precondition Failed if the If-Match header does not match the current version,
+     * or if the vehicle is changed by another request between loading and saving it, and with 400 Bad Request if it
+     * changes the registration or VIN to that of another vehicle, detected by the unique indexes on the flush.
      * @param id ID of the vehicle to be updated.
-     * @param patch JsonPatch object to be applied to the vehicle.
+     * @param patch the patch document to be applied to the vehicle.
+     * @param mergePatch true if the patch is a JSON Merge Patch, false if it is a JSON Patch.
+     * @param ifMatch the If-Match header of the request, null if the update is unconditional.
      * @return ResponseEntity with the status of the request.
      */
-    public ResponseEntity<?> updateVehicle(Long id, JsonPatch patch) {
+    private ResponseEntity<?> patchVehicle(Long id, JsonNode patch, boolean mergePatch, String ifMatch) {
         Map<String, Object> map = new LinkedHashMap<>();
         try {
-            if(!vehicleRepository.existsById(id)){
+            VehicleEntity vehicle = findLiveVehicle(id);
+            if(vehicle == null){
                 map.put("object", "error");
                 map.put("status", HttpStatus.BAD_REQUEST);
                 map.put("message", "Vehicle not found");
                 return ResponseEntity.badRequest().body(map);
             }
-            VehicleEntity vehicle = vehicleRepository.findById(id).orElseThrow();
-            VehicleEntity patchedVehicle = applyPatchToVehicle(patch, vehicle);
-            vehicleRepository.save(patchedVehicle);
-            return ResponseEntity.ok().body(patchedVehicle);
-        } catch (JsonPatchException | JsonProcessingException e) {
+            if (!ETagUtil.ifMatchPasses(ifMatch, ETagUtil.toETag(vehicle.getVersion()))) {
+                return getPreconditionFailedResponseEntity(map, vehicle);
+            }
+            if (mergePatch) {
+                vehiclePatchApplier.applyMergePatch(patch, vehicle);
+            } else {
+                vehiclePatchApplier.applyJsonPatch(patch, vehicle);
+            }
+            VehicleEntity patchedVehicle = vehicleRepository.saveAndFlush(vehicle);
+            eventPublisher.publishEvent(new VehicleChangedEvent(
+                    VehicleChangedEvent.Type.UPDATED, patchedVehicle.getId(), patchedVehicle.getRegistrationKey()));
+            return ResponseEntity.ok().eTag(ETagUtil.toETag(patchedVehicle.getVersion())).body(patchedVehicle);
+        } catch (JsonPatchException | IOException e) {
+            setRollbackOnly();
             map.put("object", "error");
             map.put("status", HttpStatus.BAD_REQUEST);
             map.put("message", "Error updating vehicle, check the request body.");
             return ResponseEntity.badRequest().body(map);
+        } catch (OptimisticLockingFailureException e) {
+            setRollbackOnly();
+            return getPreconditionFailedResponseEntity(map, null);
+        } catch (DataIntegrityViolationException e) {
+            setRollbackOnly();
+            map.put("object", "error");
+            map.put("status", HttpStatus.BAD_REQUEST);
+            map.put("message", isDuplicateVehicle(e) ? "Vehicle already exists" : "Error updating vehicle, check the request body.");
+            return ResponseEntity.badRequest().body(map);
         }
     }
 
     /**
-     * Apply the JsonPatch to the vehicle.
-     * @param patch JsonPatch object to be applied to the vehicle.
-     * @param targetVehicle VehicleEntity object to be updated.
-     * @return VehicleEntity object with the updated details.
+     * Get the response entity for a conditional request whose If-Match header does not match the vehicle.
+     * @param map Map containing the response details.
+     * @param vehicle the current vehicle, null if its current version is unknown.
+     * @return ResponseEntity with the status of the request.
      */
-    private VehicleEntity applyPatchToVehicle(JsonPatch patch, VehicleEntity targetVehicle)
-            throws JsonPatchException, JsonProcessingException {
-        JsonNode patched = patch.apply(new ObjectMapper().convertValue(targetVehicle, JsonNode.class));
-        return new ObjectMapper().treeToValue(patched, VehicleEntity.class);
+    private ResponseEntity<?> getPreconditionFailedResponseEntity(Map<String, Object> map, VehicleEntity vehicle) {
+        map.put("object", "error");
+        map.put("status", HttpStatus.PRECONDITION_FAILED);
+        map.put("message", "Vehicle was modified by another request, reload it and try again");
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.PRECONDITION_FAILED);
+        if (vehicle != null) {
+            response.eTag(ETagUtil.toETag(vehicle.getVersion()));
+        }
+        return response.body(map);
     }
 
     /**
      * Search for a vehicle using the registration or ID.
+     * The vehicle is returned with its version as a strong ETag, and 304 Not Modified is returned instead
+     * if the If-None-Match header already matches that version.
+     * The lookup is a read-only transaction, routed to the read replica when one is configured.
      * @param searchRequest Map containing the search parameters.
+     * @param ifNoneMatch the If-None-Match header of the request, may be null.
      * @return ResponseEntity with the status of the request.
      */
-    public ResponseEntity<?> searchVehicle(Map<String, String> searchRequest) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> searchVehicle(Map<String, String> searchRequest, String ifNoneMatch) {
         Map<String, Object> map = new LinkedHashMap<>();
             if (searchRequest.containsKey("registration")) {
             if(searchRequest.get("registration").isEmpty()){
@@ -95,8 +261,8 @@ public class VehicleService {
                 return ResponseEntity.badRequest().body(map);
             }
             String registration = searchRequest.get("registration");
-            VehicleEntity vehicle = vehicleRepository.findByRegistration(registration).orElse(null);
-                return getResponseEntity(map, vehicle);
+            VehicleEntity vehicle = findVehicleByRegistration(registration);
+                return getResponseEntity(map, vehicle, ifNoneMatch);
             } else if (searchRequest.containsKey("id")) {
             if(searchRequest.get("id").isEmpty()){
                 map.put("object", "error");
@@ -105,8 +271,8 @@ public class VehicleService {
                 return ResponseEntity.badRequest().body(map);
             }
             Long id = Long.parseLong(searchRequest.get("id"));
-            VehicleEntity vehicle = vehicleRepository.findById(id).orElse(null);
-                return getResponseEntity(map, vehicle);
+            VehicleEntity vehicle = findVehicleById(id);
+                return getResponseEntity(map, vehicle, ifNoneMatch);
             } else {
             map.put("object", "error");
             map.put("status", HttpStatus.BAD_REQUEST);
@@ -115,28 +281,326 @@ public class VehicleService {
         }
     }
 
+    /**
+     * Search for vehicles matching every filter of the search criteria, one page at a time.
+     * The page and its count are read in one read-only transaction, routed to the read replica when one is configured.
+     * @param criteria the filters to match, blank filters are ignored.
+     * @param pageable the page and sort order to return, sorting is only allowed on indexed properties.
+     * @param fields the comma separated vehicle properties to return, null for every property.
+     * @return ResponseEntity with the status of the request.
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> searchVehicles(VehicleSearchCriteria criteria, Pageable pageable, String fields) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        List<String> selectedFields;
+        try {
+            selectedFields = VehicleFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return getUnknownFieldResponseEntity(map, e);
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                map.put("object", "error");
+                map.put("status", HttpStatus.BAD_REQUEST);
+                map.put("message", "Bad Request, vehicles cannot be sorted by " + order.getProperty());
+                return ResponseEntity.badRequest().body(map);
+            }
+        }
+        Page<?> vehicles = selectedFields == null
+                ? vehicleRepository.findAll(VehicleSpecifications.matching(criteria), pageable)
+                : vehicleRepository.findAllProjected(VehicleSpecifications.matching(criteria), selectedFields, pageable);
+        map.put("object", "vehicles");
+        map.put("page", vehicles.getNumber());
+        map.put("size", vehicles.getSize());
+        map.put("totalElements", vehicles.getTotalElements());
+        map.put("totalPages", vehicles.getTotalPages());
+        map.put("data", vehicles.getContent());
+        return ResponseEntity.ok().body(map);
+    }
+
+    /**
+     * Look up many vehicles at once by ID and/or registration, e.g. for the vehicles of a job card.
+     * Vehicles are read through the VehicleCache, the ones not cached are loaded with IN queries of at most
+     * {@code vehicle.batch.chunkSize} keys. The vehicles found are returned in the order requested, IDs first,
+     * and every ID or registration without a vehicle is listed in the misses.
+     * When fields are requested only their columns are selected, straight from the database.
+     * The lookups are a read-only transaction, routed to the read replica when one is configured.
+     * @param batchRequest the IDs and registrations of the vehicles to look up.
+     * @param fields the comma separated vehicle properties to return, null for every property.
+     * @return ResponseEntity with the vehicles found and the misses.
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> batchSearchVehicles(VehicleBatchRequest batchRequest, String fields) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        List<String> selectedFields;
+        try {
+            selectedFields = VehicleFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return getUnknownFieldResponseEntity(map, e);
+        }
+        List<Long> ids = batchRequest == null || batchRequest.ids() == null ? List.of() : batchRequest.ids();
+        List<String> registrations = batchRequest == null || batchRequest.registrations() == null
+                ? List.of() : batchRequest.registrations();
+        if(ids.isEmpty() && registrations.isEmpty()){
+            map.put("object", "error");
+            map.put("status", HttpStatus.BAD_REQUEST);
+            map.put("message", "Bad Request, vehicle IDs or registrations are required");
+            return ResponseEntity.badRequest().body(map);
+        }
+        if(ids.size() + registrations.size() > maxBatchSize){
+            map.put("object", "error");
+            map.put("status", HttpStatus.BAD_REQUEST);
+            map.put("message", "Bad Request, at most " + maxBatchSize + " vehicles can be requested at once");
+            return ResponseEntity.badRequest().body(map);
+        }
+        if(ids.stream().anyMatch(Objects::isNull)){
+            map.put("object", "error");
+            map.put("status", HttpStatus.BAD_REQUEST);
+            map.put("message", "Bad Request, vehicle ID is required");
+            return ResponseEntity.badRequest().body(map);
+        }
+        Map<Long, ?> vehiclesById = selectedFields == null
+                ? findVehiclesByIds(ids) : findProjectedVehiclesByIds(ids, selectedFields);
+        Map<String, ?> vehiclesByRegistrationKey = selectedFields == null
+                ? findVehiclesByRegistrationKeys(registrations)
+                : findProjectedVehiclesByRegistrationKeys(registrations, selectedFields);
+        List<Object> vehicles = new ArrayList<>(ids.size() + registrations.size());
+        List<Map<String, Object>> misses = new ArrayList<>();
+        for (Long id : ids) {
+            Object vehicle = vehiclesById.get(id);
+            if (vehicle == null) {
+                Map<String, Object> miss = new LinkedHashMap<>();
+                miss.put("id", id);
+                misses.add(miss);
+            } else {
+                vehicles.add(vehicle);
+            }
+        }
+        for (String registration : registrations) {
+            String registrationKey = VehicleEntity.normalizeKey(registration);
+            Object vehicle = registrationKey == null ? null : vehiclesByRegistrationKey.get(registrationKey);
+            if (vehicle == null) {
+                Map<String, Object> miss = new LinkedHashMap<>();
+                miss.put("registration", registration);
+                misses.add(miss);
+            } else {
+                vehicles.add(vehicle);
+            }
+        }
+        map.put("object", "vehicles");
+        map.put("found", vehicles.size());
+        map.put("missing", misses.size());
+        map.put("data", vehicles);
+        map.put("misses", misses);
+        return ResponseEntity.ok().body(map);
+    }
+
+    /**
+     * Find the vehicles with the provided IDs, reading through the VehicleCache and loading the rest in chunks.
+     * @param ids the IDs of the vehicles, may contain repeats.
+     * @return the vehicles found, by ID.
+     */
+    private Map<Long, VehicleEntity> findVehiclesByIds(List<Long> ids) {
+        Map<Long, VehicleEntity> vehicles = new HashMap<>();
+        List<Long> uncachedIds = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            VehicleEntity vehicle = vehicleCache.getById(id);
+            if (vehicle == null) {
+                uncachedIds.add(id);
+            } else {
+                vehicles.put(id, vehicle);
+            }
+        }
+        for (int from = 0; from < uncachedIds.size(); from += batchChunkSize) {
+            List<Long> chunk = uncachedIds.subList(from, Math.min(from + batchChunkSize, uncachedIds.size()));
+            long generation = vehicleCache.generation();
+            for (VehicleEntity vehicle : vehicleRepository.findAllById(chunk)) {
+                vehicles.put(vehicle.getId(), vehicle);
+                cache(generation, vehicle);
+            }
+        }
+        return vehicles;
+    }
+
+    /**
+     * Find the vehicles with the provided registrations, reading through the VehicleCache and loading the rest in chunks.
+     * @param registrations the registrations of the vehicles, in any case and spacing, may contain repeats.
+     * @return the vehicles found, by normalized registration.
+     */
+    private Map<String, VehicleEntity> findVehiclesByRegistrationKeys(List<String> registrations) {
+        Map<String, VehicleEntity> vehicles = new HashMap<>();
+        List<String> uncachedKeys = new ArrayList<>();
+        Set<String> registrationKeys = new LinkedHashSet<>();
+        for (String registration : registrations) {
+            String registrationKey = VehicleEntity.normalizeKey(registration);
+            if (registrationKey != null) {
+                registrationKeys.add(registrationKey);
+            }
+        }
+        for (String registrationKey : registrationKeys) {
+            VehicleEntity vehicle = vehicleCache.getByRegistrationKey(registrationKey);
+            if (vehicle == null) {
+                uncachedKeys.add(registrationKey);
+            } else {
+                vehicles.put(registrationKey, vehicle);
+            }
+        }
+        for (int from = 0; from < uncachedKeys.size(); from += batchChunkSize) {
+            List<String> chunk = uncachedKeys.subList(from, Math.min(from + batchChunkSize, uncachedKeys.size()));
+            long generation = vehicleCache.generation();
+            for (VehicleEntity vehicle : vehicleRepository.findByRegistrationKeyIn(chunk)) {
+                vehicles.put(vehicle.getRegistrationKey(), vehicle);
+                cache(generation, vehicle);
+            }
+        }
+        return vehicles;
+    }
+
+    /**
+     * Select the provided properties of the vehicles with the provided IDs, in chunks.
+     * @param ids the IDs of the vehicles, may contain repeats.
+     * @param fields the property names to select, including the ID.
+     * @return the selected properties of the vehicles found, by ID.
+     */
+    private Map<Long, Map<String, Object>> findProjectedVehiclesByIds(List<Long> ids, List<String> fields) {
+        Map<Long, Map<String, Object>> vehicles = new HashMap<>();
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        for (int from = 0; from < distinctIds.size(); from += batchChunkSize) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + batchChunkSize, distinctIds.size()));
+            for (Map<String, Object> vehicle : vehicleRepository.findAllProjected(
+                    VehicleSpecifications.idIn(chunk), fields, Sort.unsorted(), Limit.unlimited())) {
+                vehicles.put((Long) vehicle.get("id"), vehicle);
+            }
+        }
+        return vehicles;
+    }
+
+    /**
+     * Select the provided properties of the vehicles with the provided registrations, in chunks.
+     * The registration key is selected alongside to match the rows to the request, and left out of the result.
+     * @param registrations the registrations of the vehicles, in any case and spacing, may contain repeats.
+     * @param fields the property names to select, including the ID.
+     * @return the selected properties of the vehicles found, by normalized registration.
+     */
+    private Map<String, Map<String, Object>> findProjectedVehiclesByRegistrationKeys(List<String> registrations,
+                                                                                     List<String> fields) {
+        Map<String, Map<String, Object>> vehicles = new HashMap<>();
+        List<String> registrationKeys = new ArrayList<>(registrations.stream()
+                .map(VehicleEntity::normalizeKey)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        List<String> selectedFields = new ArrayList<>(fields);
+        selectedFields.add("registrationKey");
+        for (int from = 0; from < registrationKeys.size(); from += batchChunkSize) {
+            List<String> chunk = registrationKeys.subList(from, Math.min(from + batchChunkSize, registrationKeys.size()));
+            for (Map<String, Object> vehicle : vehicleRepository.findAllProjected(
+                    VehicleSpecifications.registrationKeyIn(chunk), selectedFields, Sort.unsorted(), Limit.unlimited())) {
+                vehicles.put((String) vehicle.remove("registrationKey"), vehicle);
+            }
+        }
+        return vehicles;
+    }
+
+    /**
+     * Get the response entity of a read whose fields parameter names a property a vehicle does not have.
+     * @param map Map containing the response details.
+     * @param e the exception describing the unknown property.
+     * @return ResponseEntity with the status of the request.
+     */
+    private ResponseEntity<?> getUnknownFieldResponseEntity(Map<String, Object> map, IllegalArgumentException e) {
+        map.put("object", "error");
+        map.put("status", HttpStatus.BAD_REQUEST);
+        map.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(map);
+    }
+
+    /**
+     * Find a vehicle by its registration, reading through the VehicleCache.
+     * @param registration the registration of the vehicle, in any case and spacing.
+     * @return the vehicle, or null if it does not exist.
+     */
+    private VehicleEntity findVehicleByRegistration(String registration) {
+        String registrationKey = VehicleEntity.normalizeKey(registration);
+        VehicleEntity vehicle = vehicleCache.getByRegistrationKey(registrationKey);
+        if (vehicle == null) {
+            long generation = vehicleCache.generation();
+            vehicle = vehicleRepository.findByRegistrationKey(registrationKey).orElse(null);
+            cache(generation, vehicle);
+        }
+        return vehicle;
+    }
+
+    /**
+     * Find a vehicle by its ID, reading through the VehicleCache.
+     * @param id the ID of the vehicle.
+     * @return the vehicle, or null if it does not exist.
+     */
+    private VehicleEntity findVehicleById(Long id) {
+        VehicleEntity vehicle = vehicleCache.getById(id);
+        if (vehicle == null) {
+            long generation = vehicleCache.generation();
+            vehicle = findLiveVehicle(id);
+            cache(generation, vehicle);
+        }
+        return vehicle;
+    }
+
+    /**
+     * Cache a vehicle loaded in the provided generation of the VehicleCache, unless it was loaded from the read replica.
+     * A replica that is behind can return a vehicle as it was before a change that has already evicted it,
+     * which would then be served until it expires.
+     * @param generation the generation of the VehicleCache read before the vehicle was loaded.
+     * @param vehicle the loaded vehicle, may be null.
+     */
+    private void cache(long generation, VehicleEntity vehicle) {
+        if (!replicaEnabled || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            vehicleCache.put(generation, vehicle);
+        }
+    }
+
+    /**
+     * Find a vehicle by its ID, skipping tombstones. Queries never return a deleted vehicle, but a load by ID
+     * can still be answered by the second-level cache with the tombstone of a vehicle deleted since.
+     * @param id the ID of the vehicle.
+     * @return the vehicle, or null if it does not exist or was deleted.
+     */
+    private VehicleEntity findLiveVehicle(Long id) {
+        return vehicleRepository.findById(id).filter(vehicle -> !vehicle.isDeleted()).orElse(null);
+    }
+
     /**
      * Get the response entity based on the vehicle found or not.
      * @param map Map containing the response details.
      * @param vehicle VehicleEntity object found.
+     * @param ifNoneMatch the If-None-Match header of the request, may be null.
      * @return ResponseEntity with the status of the request.
      */
-    private ResponseEntity<?> getResponseEntity(Map<String, Object> map, VehicleEntity vehicle) {
+    private ResponseEntity<?> getResponseEntity(Map<String, Object> map, VehicleEntity vehicle, String ifNoneMatch) {
         if(vehicle == null){
             map.put("object", "error");
             map.put("status", HttpStatus.BAD_REQUEST);
             map.put("message", "Vehicle not found");
             return ResponseEntity.badRequest().body(map);
         }
-        return ResponseEntity.ok().body(vehicle);
+        String eTag = ETagUtil.toETag(vehicle.getVersion());
+        if (ETagUtil.ifNoneMatchMatches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(vehicle);
     }
 
     /**
      * Delete vehicle details using the registration or ID.
+     * The deletion is rejected with 412 Precondition Failed if the If-Match header does not match the current version.
+     * The vehicle is loaded into the transaction rather than read through the VehicleCache, so the tombstone is written
+     * with one update instead of a merge that selects the cached vehicle again, and the cached instance shared with
+     * concurrent readers is never modified.
      * @param searchRequest the search request containing the registration or ID of the vehicle to be deleted from the database
+     * @param ifMatch the If-Match header of the request, null if the deletion is unconditional.
      * @return ResponseEntity with the status of the request.
      */
-    public ResponseEntity<?> deleteVehicle(Map<String, String> searchRequest) {
+    @Transactional
+    public ResponseEntity<?> deleteVehicle(Map<String, String> searchRequest, String ifMatch) {
         Map<String, Object> map = new LinkedHashMap<>();
         if (searchRequest.containsKey("registration")) {
             if(searchRequest.get("registration").isEmpty()){
@@ -146,8 +610,8 @@ public class VehicleService {
                 return ResponseEntity.badRequest().body(map);
             }
             String registration = searchRequest.get("registration");
-            VehicleEntity vehicle = vehicleRepository.findByRegistration(registration).orElse(null);
-            return getDeleteResponseEntity(map, vehicle);
+            VehicleEntity vehicle = vehicleRepository.findByRegistrationKey(VehicleEntity.normalizeKey(registration)).orElse(null);
+            return getDeleteResponseEntity(map, vehicle, ifMatch);
         } else if (searchRequest.containsKey("id")) {
             if(searchRequest.get("id").isEmpty()){
                 map.put("object", "error");
@@ -156,8 +620,8 @@ public class VehicleService {
                 return ResponseEntity.badRequest().body(map);
             }
             Long id = Long.parseLong(searchRequest.get("id"));
-            VehicleEntity vehicle = vehicleRepository.findById(id).orElse(null);
-            return getDeleteResponseEntity(map, vehicle);
+            VehicleEntity vehicle = findLiveVehicle(id);
+            return getDeleteResponseEntity(map, vehicle, ifMatch);
         } else {
             map.put("object", "error");
             map.put("status", HttpStatus.BAD_REQUEST);
@@ -168,18 +632,34 @@ public class VehicleService {
 
     /**
      * Get the response entity based on the vehicle found or not.
+     * The vehicle is soft deleted, it is kept as a tombstone so that the delta sync can report the deletion,
+     * and purged once {@code vehicle.tombstones.retention} has passed.
      * @param map Map containing the response details.
      * @param vehicle VehicleEntity object found.
+     * @param ifMatch the If-Match header of the request, null if the deletion is unconditional.
      * @return ResponseEntity with the status of the request.
      */
-    private ResponseEntity<?> getDeleteResponseEntity(Map<String, Object> map, VehicleEntity vehicle) {
+    private ResponseEntity<?> getDeleteResponseEntity(Map<String, Object> map, VehicleEntity vehicle, String ifMatch) {
         if(vehicle == null){
             map.put("object", "error");
             map.put("status", HttpStatus.BAD_REQUEST);
             map.put("message", "Vehicle not found");
             return ResponseEntity.badRequest().body(map);
         }
-        vehicleRepository.delete(vehicle);
+        if (!ETagUtil.ifMatchPasses(ifMatch, ETagUtil.toETag(vehicle.getVersion()))) {
+            return getPreconditionFailedResponseEntity(map, vehicle);
+        }
+        String registrationKey = vehicle.getRegistrationKey();
+        try {
+            vehicle.markDeleted();
+            vehicleRepository.saveAndFlush(vehicle);
+        } catch (OptimisticLockingFailureException e) {
+            setRollbackOnly();
+            vehicleCache.evict(vehicle.getId(), registrationKey);
+            return getPreconditionFailedResponseEntity(map, null);
+        }
+        eventPublisher.publishEvent(new VehicleChangedEvent(
+                VehicleChangedEvent.Type.DELETED, vehicle.getId(), registrationKey));
         map.put("object", "success");
         map.put("status", HttpStatus.OK);
         map.put("message", "Vehicle deleted successfully");
@@ -188,16 +668,169 @@ public class VehicleService {
 
     /**
      * Get all vehicles from the database.
+     * The full list is served from the VehicleListCache, serialized and gzipped once per change to the vehicles,
+     * and sent gzipped to clients that accept it.
+     * The vehicles are read from the primary, not the read replica: the list is cached until the next change,
+     * so a list read from a replica that is behind would be served stale until then.
+     * @param fields the comma separated vehicle properties to return, null for every property.
+     * @param acceptEncoding the Accept-Encoding header of the request, may be null.
      * @return ResponseEntity with the status of the request.
      */
-    public ResponseEntity<?> getAllVehicles() {
-        if(vehicleRepository.findAll().isEmpty()){
-            Map<String, Object> map = new LinkedHashMap<>();
+    @Transactional
+    public ResponseEntity<?> getAllVehicles(String fields, String acceptEncoding) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        List<String> selectedFields;
+        try {
+            selectedFields = VehicleFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return getUnknownFieldResponseEntity(map, e);
+        }
+        VehicleListCache.Payload payload = selectedFields == null ? vehicleListCache.get() : null;
+        if (payload != null) {
+            return getPayloadResponseEntity(payload, acceptEncoding);
+        }
+        long generation = vehicleListCache.generation();
+        List<?> vehicles = selectedFields == null
+                ? vehicleRepository.findAll()
+                : vehicleRepository.findAllProjected(null, selectedFields, Sort.by("id"), Limit.unlimited());
+        if(vehicles.isEmpty()){
             map.put("object", "error");
             map.put("status", HttpStatus.BAD_REQUEST);
             map.put("message", "No vehicles found");
             return ResponseEntity.badRequest().body(map);
         }
-        return ResponseEntity.ok().body(vehicleRepository.findAll());
+        if (selectedFields != null) {
+            return ResponseEntity.ok().body(vehicles);
+        }
+        try {
+            payload = VehicleListCache.Payload.of(objectMapper.writeValueAsBytes(vehicles));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.ok().body(vehicles);
+        }
+        vehicleListCache.put(generation, payload);
+        return getPayloadResponseEntity(payload, acceptEncoding);
+    }
+
+    /**
+     * Get the response entity sending a serialized list of vehicles, gzipped if the client accepts it.
+     * The body carries its own Content-Encoding, so the server compression leaves it as it is.
+     * @param payload the serialized list of vehicles.
+     * @param acceptEncoding the Accept-Encoding header of the request, may be null.
+     * @return ResponseEntity with the serialized list of vehicles.
+     */
+    private ResponseEntity<?> getPayloadResponseEntity(VehicleListCache.Payload payload, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzip());
+        }
+        return response.body(payload.json());
+    }
+
+    /**
+     * Check if an Accept-Encoding header accepts gzip, either by name or by wildcard, with a non-zero quality.
+     * @param acceptEncoding the Accept-Encoding header of the request, may be null.
+     * @return true if the response can be sent gzipped.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!"gzip".equalsIgnoreCase(name) && !"*".equals(name)) {
+                continue;
+            }
+            boolean rejected = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        rejected = Double.parseDouble(parameter.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        rejected = true;
+                    }
+                }
+            }
+            if (!rejected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a page of vehicles using keyset pagination on the ID.
+     * The page holds the vehicles with an ID greater than the cursor, and the response carries the cursor of the next page,
+     * which is null once the last page has been reached.
+     * The page is a read-only transaction, routed to the read replica when one is configured.
+     * @param after ID of the last vehicle of the previous page, null for the first page.
+     * @param size number of vehicles per page, null for the configured default page size.
+     * @param fields the comma separated vehicle properties to return, null for every property.
+     * @return ResponseEntity with the status of the request.
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getVehiclePage(Long after, Integer size, String fields) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        List<String> selectedFields;
+        try {
+            selectedFields = VehicleFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return getUnknownFieldResponseEntity(map, e);
+        }
+        if(size != null && size < 1){
+            map.put("object", "error");
+            map.put("status", HttpStatus.BAD_REQUEST);
+            map.put("message", "Bad Request, page size must be greater than 0");
+            return ResponseEntity.badRequest().body(map);
+        }
+        int pageSize = size == null ? defaultPageSize : Math.min(size, maxPageSize);
+        Long cursor = after == null ? 0L : after;
+        List<?> vehicles;
+        Long nextCursor = null;
+        if (selectedFields == null) {
+            List<VehicleEntity> page = vehicleRepository.findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(pageSize));
+            if (page.size() == pageSize) {
+                nextCursor = page.getLast().getId();
+            }
+            vehicles = page;
+        } else {
+            List<Map<String, Object>> page = vehicleRepository.findAllProjected(
+                    VehicleSpecifications.idGreaterThan(cursor), selectedFields, Sort.by("id"), Limit.of(pageSize));
+            if (page.size() == pageSize) {
+                nextCursor = (Long) page.getLast().get("id");
+            }
+            vehicles = page;
+        }
+        map.put("object", "vehicles");
+        map.put("size", vehicles.size());
+        map.put("nextCursor", nextCursor);
+        map.put("data", vehicles);
+        return ResponseEntity.ok().body(map);
+    }
+
+    /**
+     * Write every vehicle to the output stream as newline delimited JSON, one vehicle per line.
+     * The rows are streamed from the database and detached from the persistence context once written,
+     * so memory use stays flat regardless of the number of vehicles.
+     * @param outputStream the stream to write the vehicles to.
+     * @throws IOException if writing to the output stream fails.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllVehicles(OutputStream outputStream) throws IOException {
+        try (Stream<VehicleEntity> vehicles = vehicleRepository.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Iterator<VehicleEntity> iterator = vehicles.iterator();
+            while (iterator.hasNext()) {
+                VehicleEntity vehicle = iterator.next();
+                generator.writeObject(vehicle);
+                generator.writeRaw('\n');
+                entityManager.detach(vehicle);
+            }
+        }
     }
 }
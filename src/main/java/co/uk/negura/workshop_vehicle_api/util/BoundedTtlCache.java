@@ -0,0 +1,157 @@
+package co.uk.negura.workshop_vehicle_api.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small in-process cache that holds at most {@code maxSize} entries and drops every entry once its
+ * time to live has passed. When the cache is full the least recently used entry is evicted.
+ * Hit, miss and eviction counts are tracked so the cache can be sized from its metrics.
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final int maxSize;
+    private final Duration ttl;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    public BoundedTtlCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, Clock.systemUTC());
+    }
+
+    public BoundedTtlCache(int maxSize, Duration ttl, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > BoundedTtlCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the value cached for the key, or null if there is no entry or the entry has expired.
+     * Expired entries are removed and counted as evictions.
+     * @param key the key to look up
+     * @return the cached value, or null if it is missing or expired
+     */
+    public V get(K key) {
+        lock.lock();
+        try {
+            CacheEntry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (!entry.expiresAt().isAfter(clock.instant())) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches the value for the configured time to live.
+     * @param key the key to cache the value under
+     * @param value the value to cache
+     */
+    public void put(K key, V value) {
+        put(key, value, null);
+    }
+
+    /**
+     * Caches the value for the configured time to live, but never beyond the provided instant.
+     * Values that would already be expired are not cached.
+     * @param key the key to cache the value under
+     * @param value the value to cache
+     * @param notAfter the latest instant the entry may live until, or null to use the time to live only
+     */
+    public void put(K key, V value, Instant notAfter) {
+        Instant now = clock.instant();
+        Instant expiresAt = now.plus(ttl);
+        if (notAfter != null && notAfter.isBefore(expiresAt)) {
+            expiresAt = notAfter;
+        }
+        if (!expiresAt.isAfter(now)) {
+            return;
+        }
+        lock.lock();
+        try {
+            entries.put(key, new CacheEntry<>(value, expiresAt));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entry cached for the key, if any.
+     * @param key the key to remove
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry from the cache.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private record CacheEntry<V>(V value, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,61 @@
+package co.uk.negura.workshop_vehicle_api.util;
+
+/**
+ * Helpers for the entity tags of versioned resources and for evaluating the If-Match and If-None-Match
+ * request headers against them, following RFC 9110.
+ */
+public final class ETagUtil {
+
+    private ETagUtil() {
+    }
+
+    /**
+     * Build the strong entity tag of a resource version.
+     * @param version the version of the resource
+     * @return the quoted entity tag, or null if the resource has no version
+     */
+    public static String toETag(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * Evaluate an If-Match header, which uses the strong comparison, so weak entity tags never match.
+     * @param ifMatch the value of the If-Match header, may be null
+     * @param eTag the current entity tag of the resource
+     * @return true if the header is absent or one of its entity tags matches the current one
+     */
+    public static boolean ifMatchPasses(String ifMatch, String eTag) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return true;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (!tag.startsWith("W/") && tag.equals(eTag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluate an If-None-Match header, which uses the weak comparison.
+     * @param ifNoneMatch the value of the If-None-Match header, may be null
+     * @param eTag the current entity tag of the resource
+     * @return true if one of the entity tags of the header matches the current one, so the resource is not modified
+     */
+    public static boolean ifNoneMatchMatches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank() || eTag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+package co.uk.negura.workshop_vehicle_api.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Helpers for reading the unverified claims of a JWT and for deriving a stable key from a token.
+ * Nothing here checks the token signature, the claims must only be used for local bookkeeping such as
+ * deciding how long a validation result may be cached.
+ */
+public final class JwtClaimsUtil {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private JwtClaimsUtil() {
+    }
+
+    /**
+     * Decodes the payload section of the token into a map of claims.
+     * @param token the JWT to read the claims from
+     * @return the claims of the token, or null if the token is not a decodable JWT
+     */
+    public static Map<String, Object> readClaims(String token) {
+        if (token == null) {
+            return null;
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(parts[1]);
+            return OBJECT_MAPPER.readValue(payload, new TypeReference<>() {
+            });
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks that the token has the shape of a signed JWT: three non-empty base64url sections separated by dots.
+     * The check only scans the characters of the token, nothing is decoded.
+     * @param token the token to check
+     * @return true if the token has the shape of a signed JWT
+     */
+    public static boolean isWellFormed(String token) {
+        if (token == null) {
+            return false;
+        }
+        int dots = 0;
+        int sectionLength = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                if (sectionLength == 0) {
+                    return false;
+                }
+                dots++;
+                sectionLength = 0;
+            } else if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_') {
+                sectionLength++;
+            } else {
+                return false;
+            }
+        }
+        return dots == 2 && sectionLength > 0;
+    }
+
+    /**
+     * Reads the {@code exp} claim of the token.
+     * @param token the JWT to read the expiry from
+     * @return the expiry of the token, or null if the token has no readable {@code exp} claim
+     */
+    public static Instant getExpiry(String token) {
+        return getExpiry(readClaims(token));
+    }
+
+    /**
+     * Reads the {@code exp} claim from claims that were already decoded.
+     * @param claims the claims of the token, may be null
+     * @return the expiry of the token, or null if the claims have no numeric {@code exp} claim
+     */
+    public static Instant getExpiry(Map<String, Object> claims) {
+        if (claims != null && claims.get("exp") instanceof Number exp) {
+            return Instant.ofEpochSecond(exp.longValue());
+        }
+        return null;
+    }
+
+    /**
+     * Hashes the token with SHA-256 so it can be used as a cache key without keeping the raw token in memory.
+     * @param token the token to hash
+     * @return the hex encoded hash of the token
+     */
+    public static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
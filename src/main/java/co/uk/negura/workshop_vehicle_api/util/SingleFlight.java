@@ -0,0 +1,62 @@
+package co.uk.negura.workshop_vehicle_api.util;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * De-duplicates concurrent executions of the same call. The first caller for a key starts the call, and every
+ * caller subscribing for the same key while it is in flight shares its result, or its error, instead of starting
+ * another one. Once the call completes the key is released, so later callers start a fresh call.
+ * @param <K> the type of the keys identifying identical calls
+ * @param <V> the type of the result of the calls
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Returns the result of the call for the key, joining the call already in flight for the key if there is one.
+     * @param key the key identifying identical calls
+     * @param call the call to start if none is in flight for the key
+     * @return the shared result of the call
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<V>> started = new AtomicReference<>();
+            Mono<V> shared = inFlight.computeIfAbsent(key, k -> {
+                // released before the result reaches the callers, so a caller that follows sees a fresh call
+                Runnable release = () -> inFlight.remove(k, started.get());
+                Mono<V> flight = Mono.defer(call)
+                        .doOnTerminate(release)
+                        .doFinally(signal -> release.run())
+                        .cache();
+                started.set(flight);
+                return flight;
+            });
+            if (shared == started.get()) {
+                executions.incrementAndGet();
+            } else {
+                coalesced.incrementAndGet();
+            }
+            return shared;
+        });
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public long getExecutionCount() {
+        return executions.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,75 @@
+package co.uk.negura.workshop_vehicle_api.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Caches the rejections of workshop-users-api for a short time so that a revoked or otherwise invalid token
+ * that keeps being sent is answered locally instead of causing a validation request every time.
+ * Entries are keyed by the SHA-256 hash of the token. Only 401 and 403 rejections are cached, a validation that
+ * failed because workshop-users-api could not be reached, was rate limited or answered any other error is retried
+ * by the next request.
+ */
+@Component
+public class TokenRejectionCache {
+
+    private final boolean enabled;
+    private final BoundedTtlCache<String, ResponseEntity<?>> cache;
+
+    public TokenRejectionCache(@Value("${auth.tokenRejectionCache.enabled:true}") boolean enabled,
+                               @Value("${auth.tokenRejectionCache.maxSize:10000}") int maxSize,
+                               @Value("${auth.tokenRejectionCache.ttl:30s}") Duration ttl) {
+        this.enabled = enabled;
+        this.cache = new BoundedTtlCache<>(maxSize, ttl);
+    }
+
+    /**
+     * Returns the cached rejection of the token.
+     * @param bearerToken the bearer token to look up
+     * @return the cached rejection response, or null if the token was not rejected recently
+     */
+    public ResponseEntity<?> get(String bearerToken) {
+        if (!enabled) {
+            return null;
+        }
+        return cache.get(JwtClaimsUtil.hashToken(bearerToken));
+    }
+
+    /**
+     * Caches the rejection of the token for the configured time to live.
+     * @param bearerToken the bearer token that was rejected
+     * @param response the rejection response of workshop-users-api
+     */
+    public void put(String bearerToken, ResponseEntity<?> response) {
+        if (!enabled) {
+            return;
+        }
+        cache.put(JwtClaimsUtil.hashToken(bearerToken), response);
+    }
+
+    /**
+     * Drops every cached rejection.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+}
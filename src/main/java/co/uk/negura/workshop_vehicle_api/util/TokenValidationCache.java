@@ -0,0 +1,81 @@
+package co.uk.negura.workshop_vehicle_api.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Caches successful token validation responses from workshop-users-api so that repeated requests carrying
+ * the same bearer token do not leave the process.
+ * Entries are keyed by the SHA-256 hash of the token and never outlive the {@code exp} claim of the token.
+ */
+@Component
+public class TokenValidationCache {
+
+    private final boolean enabled;
+    private final BoundedTtlCache<String, ResponseEntity<?>> cache;
+
+    public TokenValidationCache(@Value("${auth.tokenCache.enabled:true}") boolean enabled,
+                                @Value("${auth.tokenCache.maxSize:10000}") int maxSize,
+                                @Value("${auth.tokenCache.ttl:5m}") Duration ttl) {
+        this.enabled = enabled;
+        this.cache = new BoundedTtlCache<>(maxSize, ttl);
+    }
+
+    /**
+     * Returns the cached validation response for the token.
+     * @param bearerToken the bearer token to look up
+     * @return the cached validation response, or null if the token has no valid entry
+     */
+    public ResponseEntity<?> get(String bearerToken) {
+        if (!enabled) {
+            return null;
+        }
+        return cache.get(JwtClaimsUtil.hashToken(bearerToken));
+    }
+
+    /**
+     * Caches a successful validation response for the token, capped at the expiry of the token.
+     * @param bearerToken the bearer token that was validated
+     * @param response the successful validation response
+     */
+    public void put(String bearerToken, ResponseEntity<?> response) {
+        if (!enabled) {
+            return;
+        }
+        cache.put(JwtClaimsUtil.hashToken(bearerToken), response, JwtClaimsUtil.getExpiry(bearerToken));
+    }
+
+    /**
+     * Drops the cached validation response of the token, e.g. after the user logged out or the token was revoked.
+     * @param bearerToken the bearer token to invalidate
+     */
+    public void invalidate(String bearerToken) {
+        cache.invalidate(JwtClaimsUtil.hashToken(bearerToken));
+    }
+
+    /**
+     * Drops every cached validation response.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+}
@@ -0,0 +1,204 @@
+package co.uk.negura.workshop_vehicle_api.util;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP client for workshop-users-api, shared by the token validation and the JWKS refresh.
+ * Requests are spread round-robin across every discovered instance, over one pooled connection per instance
+ * with connect and read timeouts. Transient failures are retried a bounded number of times with jittered backoff,
+ * each retry going to the next instance, and a circuit breaker fails requests fast while the service is failing.
+ * Client errors such as 401 are answered normally and are neither retried nor counted as failures.
+ * Concurrent identical requests, e.g. the parallel calls of a dashboard validating the same bearer token,
+ * share one in-flight request, counted as {@code users.api.requests.coalesced}.
+ * The latency of every attempt is recorded as {@code users.api.requests}, tagged with the instance and the outcome.
+ * The connection pool is closed when the application context shuts down.
+ */
+@Component
+public class UsersApiClient implements DisposableBean {
+
+    public static final String SERVICE_ID = "workshop-users-api";
+
+    private final DiscoveryClient discoveryClient;
+
+    private final ConnectionProvider connectionProvider;
+
+    private final WebClient webClient;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger nextInstance = new AtomicInteger();
+
+    private final Retry retry;
+
+    private final SingleFlight<String, ResponseEntity<String>> singleFlight = new SingleFlight<>();
+
+    public UsersApiClient(WebClient.Builder webClientBuilder, DiscoveryClient discoveryClient, MeterRegistry meterRegistry,
+                          @Value("${auth.usersApi.connectTimeout:1s}") Duration connectTimeout,
+                          @Value("${auth.usersApi.readTimeout:2s}") Duration readTimeout,
+                          @Value("${auth.usersApi.maxConnections:100}") int maxConnections,
+                          @Value("${auth.usersApi.maxRetries:2}") int maxRetries,
+                          @Value("${auth.usersApi.retryBackoff:50ms}") Duration retryBackoff,
+                          @Value("${auth.usersApi.circuitBreaker.failureRateThreshold:50}") float failureRateThreshold,
+                          @Value("${auth.usersApi.circuitBreaker.slidingWindowSize:20}") int slidingWindowSize,
+                          @Value("${auth.usersApi.circuitBreaker.waitDurationInOpenState:10s}") Duration waitDurationInOpenState) {
+        this.discoveryClient = discoveryClient;
+        this.meterRegistry = meterRegistry;
+        this.connectionProvider = ConnectionProvider.builder(SERVICE_ID)
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(connectTimeout.plus(readTimeout))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout);
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(readTimeout)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(Math.min(slidingWindowSize, 10))
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(SERVICE_ID);
+        this.retry = Retry.backoff(maxRetries, retryBackoff)
+                .jitter(0.5)
+                .filter(UsersApiClient::isRetryable)
+                .onRetryExhaustedThrow((retrySpec, signal) -> signal.failure());
+        FunctionCounter.builder("users.api.requests.coalesced", singleFlight, SingleFlight::getCoalescedCount)
+                .description("Requests to workshop-users-api that joined an identical request already in flight")
+                .register(meterRegistry);
+        Gauge.builder("users.api.requests.inflight", singleFlight, SingleFlight::getInFlightCount)
+                .description("Distinct requests to workshop-users-api currently in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends a GET request to workshop-users-api, or joins the identical request already in flight.
+     * Requests are identical when they have the same path and bearer token, the token is only kept as its hash.
+     * @param path the path of the request, resolved against the selected instance
+     * @param bearerToken the bearer token to send in the Authorization header, or null to send none
+     * @return the response, with a 2xx or 4xx status; a NoInstanceAvailableException if no instance is registered,
+     * a CallNotPermittedException while the circuit breaker is open, or the error of the last attempt
+     */
+    public Mono<ResponseEntity<String>> get(String path, String bearerToken) {
+        String key = bearerToken == null ? path : path + " " + JwtClaimsUtil.hashToken(bearerToken);
+        return singleFlight.execute(key, () -> Mono.defer(() -> send(selectInstance(), path, bearerToken))
+                .retryWhen(retry));
+    }
+
+    /**
+     * Closes the pooled connections to workshop-users-api, waiting until they are closed.
+     */
+    @Override
+    public void destroy() {
+        connectionProvider.disposeLater().block();
+    }
+
+    /**
+     * Sends one attempt of the request to the instance, through the circuit breaker.
+     * @param instance the instance to send the request to
+     * @param path the path of the request
+     * @param bearerToken the bearer token to send, or null to send none
+     * @return the response of the instance
+     */
+    private Mono<ResponseEntity<String>> send(ServiceInstance instance, String path, String bearerToken) {
+        long start = System.nanoTime();
+        return webClient.get()
+                .uri(instance.getUri().resolve(path))
+                .headers(headers -> {
+                    if (bearerToken != null) {
+                        headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken);
+                    }
+                })
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, response -> Mono.empty())
+                .toEntity(String.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .doOnSuccess(response -> recordLatency(instance, response.getStatusCode().is2xxSuccessful()
+                        ? "success" : "client_error", start))
+                .doOnError(e -> {
+                    if (!(e instanceof CallNotPermittedException)) {
+                        recordLatency(instance, e instanceof WebClientResponseException ? "server_error" : "error", start);
+                    }
+                });
+    }
+
+    /**
+     * Selects the next instance of workshop-users-api, round-robin across the instances currently registered.
+     * @return the selected instance
+     */
+    private ServiceInstance selectInstance() {
+        List<ServiceInstance> instances = discoveryClient.getInstances(SERVICE_ID);
+        if (instances.isEmpty()) {
+            throw new NoInstanceAvailableException();
+        }
+        return instances.get(Math.floorMod(nextInstance.getAndIncrement(), instances.size()));
+    }
+
+    private void recordLatency(ServiceInstance instance, String outcome, long start) {
+        Timer.builder("users.api.requests")
+                .description("Latency of each request attempt sent to workshop-users-api")
+                .tag("instance", instance.getHost() + ":" + instance.getPort())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Connection failures, timeouts and server errors are transient, another attempt may reach a healthy instance.
+     * @param e the failure of the attempt
+     * @return true if the request should be retried
+     */
+    private static boolean isRetryable(Throwable e) {
+        return e instanceof WebClientRequestException
+                || e instanceof TimeoutException
+                || (e instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError());
+    }
+
+    /**
+     * Raised when no instance of workshop-users-api is registered with the discovery service.
+     */
+    public static class NoInstanceAvailableException extends RuntimeException {
+
+        public NoInstanceAvailableException() {
+            super("No instances found for service " + SERVICE_ID);
+        }
+    }
+}
@@ -1,40 +1,65 @@
 package co.uk.negura.workshop_vehicle_api.util;
 
+import co.uk.negura.workshop_vehicle_api.security.VehiclePrincipal;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
-import java.net.URI;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 
 @Component
 public class ValidateTokenUtil {
 
-    private final WebClient.Builder webClientBuilder;
+    private final UsersApiClient usersApiClient;
+
+    private final TokenValidationCache tokenValidationCache;
+
+    private final TokenRejectionCache tokenRejectionCache;
 
-    private final DiscoveryClient discoveryClient;
+    private final MeterRegistry meterRegistry;
 
     @Value("${auth.validateTokenApiUrl}")
     private String validateTokenApiUrl;
 
-    public ValidateTokenUtil(WebClient.Builder webClientBuilder, DiscoveryClient discoveryClient) {
-        this.webClientBuilder = webClientBuilder;
-        this.discoveryClient = discoveryClient;
+    @Value("${auth.jwksApiUrl:/api/v1/auth/jwks}")
+    private String jwksApiUrl;
+
+    @Value("${auth.jwt.clockSkew:30s}")
+    private Duration clockSkew;
+
+    public ValidateTokenUtil(UsersApiClient usersApiClient, TokenValidationCache tokenValidationCache,
+                             TokenRejectionCache tokenRejectionCache, MeterRegistry meterRegistry) {
+        this.usersApiClient = usersApiClient;
+        this.tokenValidationCache = tokenValidationCache;
+        this.tokenRejectionCache = tokenRejectionCache;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
      * Validates the provided bearer token.
      * If the token is null or empty, it returns a BAD_REQUEST response.
-     * If no instances are found for the service "workshop-users-api", it returns a SERVICE_UNAVAILABLE response.
+     * If the token is not shaped like a signed JWT, or its {@code exp} claim has passed, it returns an UNAUTHORIZED
+     * response without sending a request, as does a token that workshop-users-api rejected recently.
+     * If no instances are found for the service "workshop-users-api", or its circuit breaker is open after repeated
+     * failures, it returns a SERVICE_UNAVAILABLE response without waiting on the service.
      * If an error occurs while validating the token, it returns an INTERNAL_SERVER_ERROR response.
-     * Otherwise, it returns the response from the token validation API.
+     * Otherwise, it returns the response from the token validation API. The body of a successful response is the
+     * VehiclePrincipal read from it, the body of a rejection is a map of its status and message.
+     * Successful responses are cached in the TokenValidationCache, so a token that was already validated
+     * is answered locally, with the same principal, until its cache entry or the token itself expires.
+     * Rejections of workshop-users-api are cached in the TokenRejectionCache for a short time.
+     * Tokens rejected without a request are counted as {@code auth.token.rejected.locally}, tagged with the reason.
+     * Every call to the token validation API is timed as {@code auth.token.validation}, tagged with its outcome,
+     * and calls that could not be answered by workshop-users-api are counted as {@code auth.token.validation.errors}.
      *
      * @param bearerToken the bearer token to validate
      * @return a ResponseEntity with the validation result
@@ -45,16 +70,30 @@ public class ValidateTokenUtil {
             return new ResponseEntity<>(responseMap, HttpStatus.valueOf((Integer) responseMap.get("status")));
         }
 
-        ServiceInstance instance = getServiceInstance();
-        if (instance == null) {
+        ResponseEntity<?> cachedResponse = tokenValidationCache.get(bearerToken);
+        if (cachedResponse != null) {
+            return cachedResponse;
+        }
+        ResponseEntity<?> cachedRejection = tokenRejectionCache.get(bearerToken);
+        if (cachedRejection != null) {
+            countLocalRejection("recently_rejected");
+            return cachedRejection;
+        }
+
+        ResponseEntity<String> responseEntity;
+        try {
+            responseEntity = sendTimedValidationRequest(bearerToken);
+        } catch (UsersApiClient.NoInstanceAvailableException | CallNotPermittedException e) {
+            countValidationError(e instanceof CallNotPermittedException ? "circuit_open" : "unavailable");
             responseMap = new LinkedHashMap<>();
             responseMap.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
-            responseMap.put("message", "No instances found for service workshop-users-api");
+            responseMap.put("message", e instanceof CallNotPermittedException
+                    ? "Service workshop-users-api is failing, token validation is suspended"
+                    : "No instances found for service workshop-users-api");
             return new ResponseEntity<>(responseMap, HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (RuntimeException e) {
+            responseEntity = null;
         }
-
-        URI uri = instance.getUri().resolve(validateTokenApiUrl);
-        ResponseEntity<String> responseEntity = sendGetRequest(uri, bearerToken);
         if (responseEntity == null) {
             responseMap = new LinkedHashMap<>();
             responseMap.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
@@ -62,59 +101,144 @@ public class ValidateTokenUtil {
             return new ResponseEntity<>(responseMap, HttpStatus.INTERNAL_SERVER_ERROR);
         }
 
-        responseMap = new LinkedHashMap<>();
-        responseMap.put("status", responseEntity.getStatusCode());
-        responseMap.put("message", responseEntity.getBody());
-        return new ResponseEntity<>(responseMap, responseEntity.getStatusCode());
+        if (!responseEntity.getStatusCode().is2xxSuccessful()) {
+            responseMap = new LinkedHashMap<>();
+            responseMap.put("status", responseEntity.getStatusCode());
+            responseMap.put("message", responseEntity.getBody());
+            ResponseEntity<?> rejection = new ResponseEntity<>(responseMap, responseEntity.getStatusCode());
+            // only a verdict on the token itself is cached, a 404 or 429 says nothing about the next request
+            if (responseEntity.getStatusCode().isSameCodeAs(HttpStatus.UNAUTHORIZED)
+                    || responseEntity.getStatusCode().isSameCodeAs(HttpStatus.FORBIDDEN)) {
+                tokenRejectionCache.put(bearerToken, rejection);
+            }
+            return rejection;
+        }
+        VehiclePrincipal principal;
+        try {
+            principal = VehiclePrincipal.fromValidationMessage(responseEntity.getBody());
+        } catch (IOException | IllegalArgumentException e) {
+            responseMap = new LinkedHashMap<>();
+            responseMap.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
+            responseMap.put("message", "Error reading the token validation response");
+            return new ResponseEntity<>(responseMap, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        ResponseEntity<?> validationResponse = new ResponseEntity<>(principal, responseEntity.getStatusCode());
+        tokenValidationCache.put(bearerToken, validationResponse);
+        return validationResponse;
     }
 
     /**
-     * Checks if the provided bearer token is null or empty.
-     * If it is, it returns a map with a BAD_REQUEST status and a message.
-     * Otherwise, it returns null.
+     * Fetches the JSON Web Key Set that workshop-users-api signs its tokens with.
+     * If no instances are found for the service "workshop-users-api", or the request fails, it returns null.
+     *
+     * @return the JSON Web Key Set document, or null if it could not be fetched
+     */
+    public String fetchJwkSet() {
+        ResponseEntity<String> responseEntity;
+        try {
+            responseEntity = usersApiClient.get(jwksApiUrl, null).block();
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (responseEntity == null || !responseEntity.getStatusCode().is2xxSuccessful()) {
+            return null;
+        }
+        return responseEntity.getBody();
+    }
+
+    /**
+     * Checks the provided bearer token locally, before any request is sent to workshop-users-api.
+     * If the token is null or empty, it returns a map with a BAD_REQUEST status and a message.
+     * If the token is not three base64url sections with a decodable JSON payload, or its {@code exp} claim
+     * passed longer ago than {@code auth.jwt.clockSkew}, it returns a map with an UNAUTHORIZED status and a message.
+     * Otherwise, it returns null. The signature is not checked, that is left to workshop-users-api.
      *
      * @param bearerToken the bearer token to check
-     * @return a map with the check result, or null if the token is valid
+     * @return a map with the check result, or null if the token is worth validating
      */
     private Map<String, Object> checkBearerToken(String bearerToken) {
         if (bearerToken == null || bearerToken.isEmpty()) {
-            Map<String, Object> responseMap = new LinkedHashMap<>();
-            responseMap.put("status", HttpStatus.BAD_REQUEST.value());
-            responseMap.put("message", "Bearer token is missing");
-            return responseMap;
+            return getCheckResponseMap(HttpStatus.BAD_REQUEST, "Bearer token is missing");
+        }
+        Map<String, Object> claims = JwtClaimsUtil.isWellFormed(bearerToken) ? JwtClaimsUtil.readClaims(bearerToken) : null;
+        if (claims == null) {
+            countLocalRejection("malformed");
+            return getCheckResponseMap(HttpStatus.UNAUTHORIZED, "Bearer token is malformed");
+        }
+        Instant expiry = JwtClaimsUtil.getExpiry(claims);
+        if (expiry != null && expiry.plus(clockSkew).isBefore(Instant.now())) {
+            countLocalRejection("expired");
+            return getCheckResponseMap(HttpStatus.UNAUTHORIZED, "Bearer token has expired");
         }
         return null;
     }
 
+    private static Map<String, Object> getCheckResponseMap(HttpStatus status, String message) {
+        Map<String, Object> responseMap = new LinkedHashMap<>();
+        responseMap.put("status", status.value());
+        responseMap.put("message", message);
+        return responseMap;
+    }
+
     /**
-     * Gets the first service instance for the service "workshop-users-api".
-     * If no instances are found, it returns null.
+     * Sends the token validation request and records its latency, tagged with the outcome of the call:
+     * success, rejected when workshop-users-api answered with a client error, unavailable when no instance is registered,
+     * circuit_open when the circuit breaker rejected the call, or error otherwise.
      *
-     * @return the first service instance, or null if no instances are found
+     * @param bearerToken the bearer token to validate
+     * @return a ResponseEntity with the response from the server
      */
-    private ServiceInstance getServiceInstance() {
-        List<ServiceInstance> instances = discoveryClient.getInstances("workshop-users-api");
-        if (instances.isEmpty()) {
-            return null;
+    private ResponseEntity<String> sendTimedValidationRequest(String bearerToken) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ResponseEntity<String> responseEntity = usersApiClient.get(validateTokenApiUrl, bearerToken).block();
+            if (responseEntity != null) {
+                outcome = responseEntity.getStatusCode().is2xxSuccessful() ? "success" : "rejected";
+            }
+            return responseEntity;
+        } catch (UsersApiClient.NoInstanceAvailableException e) {
+            outcome = "unavailable";
+            throw e;
+        } catch (CallNotPermittedException e) {
+            outcome = "circuit_open";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("auth.token.validation")
+                    .description("Latency of the token validation requests sent to workshop-users-api")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+            if ("error".equals(outcome)) {
+                countValidationError("error");
+            }
         }
-        return instances.getFirst();
     }
 
     /**
-     * Sends a GET request to the provided URI with the provided bearer token.
-     * The token is included in the Authorization header of the request.
+     * Counts a token rejected without sending a validation request to workshop-users-api.
      *
-     * @param uri the URI to send the request to
-     * @param bearerToken the bearer token to include in the request
-     * @return a ResponseEntity with the response from the server
+     * @param reason malformed or expired when the local check failed, or recently_rejected when the token was
+     *               found in the TokenRejectionCache
+     */
+    private void countLocalRejection(String reason) {
+        Counter.builder("auth.token.rejected.locally")
+                .description("Tokens rejected without sending a validation request to workshop-users-api")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Counts a token validation that could not be answered by workshop-users-api.
+     *
+     * @param reason unavailable when no instance was found, circuit_open when the circuit breaker rejected the call,
+     *               or error when the request failed
      */
-    private ResponseEntity<String> sendGetRequest(URI uri, String bearerToken) {
-        Mono<ResponseEntity<String>> responseEntityMono = webClientBuilder.build()
-                .get()
-                .uri(uri)
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken)
-                .retrieve()
-                .toEntity(String.class);
-        return responseEntityMono.block();
+    private void countValidationError(String reason) {
+        Counter.builder("auth.token.validation.errors")
+                .description("Token validations that could not be answered by workshop-users-api")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
     }
 }
@@ -0,0 +1,19 @@
+-- The schema as created by Hibernate before migrations were introduced.
+-- Existing databases are baselined at this version and skip it, new databases are created from it.
+CREATE TABLE vehicles (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    registration VARCHAR(255) NOT NULL,
+    make VARCHAR(255) NOT NULL,
+    model VARCHAR(255) NOT NULL,
+    colour VARCHAR(255),
+    colour_code VARCHAR(255),
+    is_drivable BIT NOT NULL,
+    vin VARCHAR(255),
+    engine_size VARCHAR(255),
+    fuel_type VARCHAR(255),
+    transmission VARCHAR(255),
+    body_type VARCHAR(255),
+    year VARCHAR(255),
+    mileage VARCHAR(255),
+    PRIMARY KEY (id)
+);
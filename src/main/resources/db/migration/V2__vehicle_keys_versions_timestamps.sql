@@ -0,0 +1,35 @@
+-- Add the normalized lookup keys, the optimistic lock version, the timestamps of the delta sync and the
+-- soft-delete tombstone, then fill them in for the vehicles saved before they existed.
+ALTER TABLE vehicles ADD COLUMN registration_key VARCHAR(255);
+ALTER TABLE vehicles ADD COLUMN vin_key VARCHAR(255);
+ALTER TABLE vehicles ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE vehicles ADD COLUMN created_at DATETIME(6);
+ALTER TABLE vehicles ADD COLUMN updated_at DATETIME(6);
+ALTER TABLE vehicles ADD COLUMN deleted_at DATETIME(6);
+
+-- The keys are upper case without whitespace, as VehicleEntity.normalizeKey builds them, and blank keys are null.
+UPDATE vehicles SET registration_key = NULLIF(UPPER(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(registration,
+    ' ', ''), CHAR(9), ''), CHAR(10), ''), CHAR(11), ''), CHAR(12), ''), CHAR(13), '')), '');
+UPDATE vehicles SET vin_key = NULLIF(UPPER(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(vin,
+    ' ', ''), CHAR(9), ''), CHAR(10), ''), CHAR(11), ''), CHAR(12), ''), CHAR(13), '')), '');
+
+-- Vehicles that share a key keep it on the oldest of them only, the others have to be merged by hand
+-- before they can be looked up by key. The derived tables are materialized, so MySQL can update the table they read.
+UPDATE vehicles SET registration_key = NULL WHERE id IN (
+    SELECT id FROM (SELECT DISTINCT duplicate.id FROM vehicles duplicate JOIN vehicles original
+        ON original.registration_key = duplicate.registration_key AND original.id < duplicate.id) duplicates);
+UPDATE vehicles SET vin_key = NULL WHERE id IN (
+    SELECT id FROM (SELECT DISTINCT duplicate.id FROM vehicles duplicate JOIN vehicles original
+        ON original.vin_key = duplicate.vin_key AND original.id < duplicate.id) duplicates);
+
+UPDATE vehicles SET created_at = CURRENT_TIMESTAMP(6), updated_at = CURRENT_TIMESTAMP(6);
+
+ALTER TABLE vehicles ADD CONSTRAINT uk_vehicles_registration_key UNIQUE (registration_key);
+ALTER TABLE vehicles ADD CONSTRAINT uk_vehicles_vin_key UNIQUE (vin_key);
+
+CREATE INDEX idx_vehicles_make_model ON vehicles (make, model);
+CREATE INDEX idx_vehicles_fuel_type ON vehicles (fuel_type);
+CREATE INDEX idx_vehicles_transmission ON vehicles (transmission);
+CREATE INDEX idx_vehicles_body_type ON vehicles (body_type);
+CREATE INDEX idx_vehicles_year ON vehicles (year);
+CREATE INDEX idx_vehicles_updated_at ON vehicles (updated_at, id);
@@ -0,0 +1,14 @@
+-- The outbox of vehicle changes. The payload holds the JSON of a vehicle, so it needs more than
+-- the 255 bytes of a TINYTEXT, and the type is stored as text so that new types of change need no migration.
+CREATE TABLE vehicle_outbox (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    type VARCHAR(16) NOT NULL,
+    vehicle_id BIGINT NOT NULL,
+    registration_key VARCHAR(255),
+    payload MEDIUMTEXT,
+    created_at DATETIME(6) NOT NULL,
+    published_at DATETIME(6),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_vehicle_outbox_published_at ON vehicle_outbox (published_at);
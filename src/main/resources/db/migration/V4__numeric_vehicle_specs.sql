@@ -0,0 +1,19 @@
+-- Store the year, mileage and engine size as numbers, so range filters and sorts are served by their indexes.
+-- Values that are not numbers are cleared, mileage separators are dropped and engine sizes in cc become litres.
+UPDATE vehicles SET year = CASE WHEN REGEXP_LIKE(TRIM(year), '^[0-9]{4}$') THEN TRIM(year) END;
+
+UPDATE vehicles SET mileage = REGEXP_REPLACE(mileage, '[ ,]', '');
+UPDATE vehicles SET mileage = CASE WHEN REGEXP_LIKE(mileage, '^[0-9]{1,9}$') THEN mileage END;
+
+UPDATE vehicles SET engine_size = REGEXP_REPLACE(engine_size, '[^0-9.]', '');
+UPDATE vehicles SET engine_size = CASE WHEN REGEXP_LIKE(engine_size, '^[0-9]{1,5}([.][0-9]+)?$') THEN engine_size END;
+UPDATE vehicles SET engine_size = ROUND(CAST(engine_size AS DECIMAL(8, 1)) / 1000, 1)
+    WHERE CAST(engine_size AS DECIMAL(8, 1)) >= 100;
+UPDATE vehicles SET engine_size = NULL WHERE CAST(engine_size AS DECIMAL(8, 1)) > 99.9;
+
+ALTER TABLE vehicles MODIFY COLUMN year INT;
+ALTER TABLE vehicles MODIFY COLUMN mileage INT;
+ALTER TABLE vehicles MODIFY COLUMN engine_size DECIMAL(3, 1);
+
+CREATE INDEX idx_vehicles_mileage ON vehicles (mileage);
+CREATE INDEX idx_vehicles_engine_size ON vehicles (engine_size);
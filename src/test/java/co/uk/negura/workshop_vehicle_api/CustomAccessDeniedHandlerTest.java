@@ -1,5 +1,6 @@
 package co.uk.negura.workshop_vehicle_api;
 
+import co.uk.negura.workshop_vehicle_api.security.CustomAccessDeniedHandler;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -0,0 +1,37 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.util.ETagUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ETagUtilTest {
+
+    @Test
+    public void testIfMatchPassesOnlyForCurrentVersion() {
+        // Arrange
+        String eTag = ETagUtil.toETag(3L);
+
+        // Act & Assert
+        assertEquals("\"3\"", eTag);
+        assertTrue(ETagUtil.ifMatchPasses(null, eTag));
+        assertTrue(ETagUtil.ifMatchPasses("*", eTag));
+        assertTrue(ETagUtil.ifMatchPasses("\"2\", \"3\"", eTag));
+        assertFalse(ETagUtil.ifMatchPasses("\"2\"", eTag));
+        assertFalse(ETagUtil.ifMatchPasses("W/\"3\"", eTag));
+    }
+
+    @Test
+    public void testIfNoneMatchUsesWeakComparison() {
+        // Arrange
+        String eTag = ETagUtil.toETag(3L);
+
+        // Act & Assert
+        assertFalse(ETagUtil.ifNoneMatchMatches(null, eTag));
+        assertTrue(ETagUtil.ifNoneMatchMatches("W/\"3\"", eTag));
+        assertTrue(ETagUtil.ifNoneMatchMatches("*", eTag));
+        assertFalse(ETagUtil.ifNoneMatchMatches("\"2\"", eTag));
+    }
+}
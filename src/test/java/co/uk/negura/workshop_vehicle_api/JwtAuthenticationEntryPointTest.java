@@ -1,5 +1,6 @@
 package co.uk.negura.workshop_vehicle_api;
 
+import co.uk.negura.workshop_vehicle_api.security.JwtAuthenticationEntryPoint;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.Test;
@@ -1,7 +1,98 @@
 package co.uk.negura.workshop_vehicle_api;
 
+import co.uk.negura.workshop_vehicle_api.security.JwtAuthenticationFilter;
+import co.uk.negura.workshop_vehicle_api.security.LocalJwtVerifier;
+import co.uk.negura.workshop_vehicle_api.security.VehicleAuthority;
+import co.uk.negura.workshop_vehicle_api.security.VehiclePrincipal;
+import co.uk.negura.workshop_vehicle_api.util.ValidateTokenUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 public class JwtAuthenticationFilterTest {
 
+    private final ValidateTokenUtil validateTokenUtil = mock(ValidateTokenUtil.class);
+
+    @SuppressWarnings("unchecked")
+    private final JwtAuthenticationFilter jwtAuthenticationFilter =
+            new JwtAuthenticationFilter(validateTokenUtil, mock(ObjectProvider.class));
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication filter(String token) throws Exception {
+        return filter("GET", "/api/v1/vehicle/page", token);
+    }
+
+    private Authentication filter(String method, String path, String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        request.addHeader("Authorization", "Bearer " + token);
+        jwtAuthenticationFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    public void testRequestsWithSameTokenShareThePrincipal() throws Exception {
+        // Arrange
+        VehiclePrincipal principal = VehiclePrincipal.of("technician", List.of("USER_DETAILS_READ"));
+        ResponseEntity<?> validation = new ResponseEntity<>(principal, HttpStatus.OK);
+        when(validateTokenUtil.validateToken("token")).thenAnswer(invocation -> validation);
+
+        // Act
+        Authentication first = filter("token");
+        Authentication second = filter("token");
+
+        // Assert
+        assertSame(principal, first.getPrincipal());
+        assertSame(principal, second.getPrincipal());
+        assertTrue(((VehiclePrincipal) second.getPrincipal()).hasAuthority(VehicleAuthority.USER_DETAILS_READ));
+    }
+
+    @Test
+    public void testRejectedTokenLeavesRequestUnauthenticated() throws Exception {
+        // Arrange
+        ResponseEntity<?> rejection = new ResponseEntity<>(Map.of("status", 401, "message", "Invalid token"), HttpStatus.UNAUTHORIZED);
+        when(validateTokenUtil.validateToken("expired")).thenAnswer(invocation -> rejection);
+
+        // Act
+        Authentication authentication = filter("expired");
+
+        // Assert
+        assertNull(authentication);
+    }
+
+    @Test
+    public void testPublicAndUnknownRoutesDoNotValidateTheToken() throws Exception {
+        // Act
+        Authentication health = filter("GET", "/actuator/health", "token");
+        Authentication unknown = filter("GET", "/api/v1/unknown", "token");
+        Authentication wrongMethod = filter("PUT", "/api/v1/vehicle", "token");
+
+        // Assert
+        assertNull(health);
+        assertNull(unknown);
+        assertNull(wrongMethod);
+        verifyNoInteractions(validateTokenUtil);
+    }
 }
@@ -0,0 +1,82 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.security.LocalJwtVerifier;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LocalJwtVerifierTest {
+
+    private static RSAKey signingKey;
+    private static LocalJwtVerifier localJwtVerifier;
+
+    @BeforeAll
+    public static void setUp() throws JOSEException {
+        signingKey = new RSAKeyGenerator(2048).keyID("users-api").generate();
+        localJwtVerifier = new LocalJwtVerifier(new ImmutableJWKSet<>(new JWKSet(signingKey.toPublicJWK())), "authorities");
+    }
+
+    private static String signToken(RSAKey key, Instant expiry) throws JOSEException {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("technician")
+                .claim("authorities", List.of("USER_DETAILS_READ", "USER_DETAILS_WRITE"))
+                .expirationTime(Date.from(expiry))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    @Test
+    public void testVerifyReadsAuthoritiesFromClaims() throws JOSEException {
+        // Arrange
+        String token = signToken(signingKey, Instant.now().plus(Duration.ofHours(1)));
+
+        // Act
+        UserDetails userDetails = localJwtVerifier.verify(token);
+
+        // Assert
+        assertEquals("technician", userDetails.getUsername());
+        assertEquals(List.of("USER_DETAILS_READ", "USER_DETAILS_WRITE"),
+                userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).sorted().toList());
+    }
+
+    @Test
+    public void testVerifyRejectsTokenSignedByUnknownKey() throws JOSEException {
+        // Arrange
+        RSAKey otherKey = new RSAKeyGenerator(2048).keyID("users-api").generate();
+        String token = signToken(otherKey, Instant.now().plus(Duration.ofHours(1)));
+
+        // Act & Assert
+        assertThrows(JwtException.class, () -> localJwtVerifier.verify(token));
+    }
+
+    @Test
+    public void testVerifyRejectsExpiredToken() throws JOSEException {
+        // Arrange
+        String token = signToken(signingKey, Instant.now().minus(Duration.ofHours(1)));
+
+        // Act & Assert
+        assertThrows(JwtException.class, () -> localJwtVerifier.verify(token));
+    }
+}
@@ -0,0 +1,227 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import co.uk.negura.workshop_vehicle_api.reactive.ReactiveTokenValidator;
+import co.uk.negura.workshop_vehicle_api.reactive.ReactiveVehicleApiApplication;
+import co.uk.negura.workshop_vehicle_api.reactive.ReactiveVehicleOutboxRepository;
+import co.uk.negura.workshop_vehicle_api.reactive.VehicleOutboxRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = ReactiveVehicleApiApplication.class, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-vehicles?options=DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:reactive-schema.sql",
+        "eureka.client.enabled=false"
+})
+@AutoConfigureWebTestClient
+@ActiveProfiles("reactive")
+public class ReactiveVehicleApiTest {
+
+    private static final String VEHICLE = "{\"registration\":\"%s\",\"make\":\"Ford\",\"model\":\"Focus\",\"colour\":\"Blue\"}";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveVehicleOutboxRepository vehicleOutboxRepository;
+
+    @MockBean
+    private ReactiveTokenValidator reactiveTokenValidator;
+
+    @BeforeEach
+    public void setUp() {
+        when(reactiveTokenValidator.validate("technician")).thenReturn(Mono.just(User.withUsername("technician")
+                .password("").authorities("USER_DETAILS_READ", "USER_DETAILS_WRITE", "USER_DETAILS_DELETE").build()));
+        when(reactiveTokenValidator.validate("reader")).thenReturn(Mono.just(User.withUsername("reader")
+                .password("").authorities("USER_DETAILS_READ").build()));
+    }
+
+    private String createVehicle(String registration) {
+        return webTestClient.post().uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("technician"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(VEHICLE.formatted(registration))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .returnResult(Map.class)
+                .getResponseHeaders().getETag();
+    }
+
+    @Test
+    public void testCreateThenSearchAnswersNotModifiedForCurrentETag() {
+        // Arrange
+        String eTag = createVehicle("RE01 ACT");
+
+        // Act & Assert
+        webTestClient.method(HttpMethod.GET).uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("reader"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("registration", "re01act"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+                .expectBody()
+                .jsonPath("$.registration").isEqualTo("RE01 ACT")
+                .jsonPath("$.drivable").isEqualTo(false)
+                .jsonPath("$.registrationKey").doesNotExist();
+        webTestClient.method(HttpMethod.GET).uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("reader"))
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("registration", "RE01 ACT"))
+                .exchange()
+                .expectStatus().isNotModified();
+        webTestClient.post().uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("technician"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(VEHICLE.formatted("re01 act"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Vehicle already exists");
+    }
+
+    @Test
+    public void testPatchRejectsStaleIfMatch() {
+        // Arrange
+        String eTag = createVehicle("RE02 ACT");
+        Map<?, ?> vehicle = webTestClient.method(HttpMethod.GET).uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("reader"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("registration", "RE02 ACT"))
+                .exchange()
+                .returnResult(Map.class).getResponseBody().blockFirst();
+        long id = ((Number) vehicle.get("id")).longValue();
+
+        // Act
+        String newETag = webTestClient.patch().uri("/api/v1/vehicle/{id}", id)
+                .headers(headers -> headers.setBearerAuth("technician"))
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"colour\":\"Red\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Map.class).getResponseHeaders().getETag();
+
+        // Assert
+        assertNotEquals(eTag, newETag);
+        webTestClient.patch().uri("/api/v1/vehicle/{id}", id)
+                .headers(headers -> headers.setBearerAuth("technician"))
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"colour\":\"Green\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, newETag);
+    }
+
+    @Test
+    public void testDeleteRequiresDeleteAuthority() {
+        // Arrange
+        createVehicle("RE03 ACT");
+
+        // Act & Assert
+        webTestClient.method(HttpMethod.DELETE).uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("reader"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("registration", "RE03 ACT"))
+                .exchange()
+                .expectStatus().isForbidden();
+        webTestClient.method(HttpMethod.DELETE).uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("technician"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("registration", "RE03 ACT"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.message").isEqualTo("Vehicle deleted successfully");
+        assertEquals(HttpStatus.UNAUTHORIZED, webTestClient.get().uri("/api/v1/vehicle/all")
+                .exchange().returnResult(String.class).getStatus());
+    }
+
+    @Test
+    public void testCreateRejectsSpecificationsOutOfRange() {
+        // Act & Assert
+        webTestClient.post().uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("technician"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"registration\":\"RE04 ACT\",\"make\":\"Ford\",\"model\":\"Focus\",\"engineSize\":\"1598\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Vehicle engineSize must be between 0 and 99.9 litres");
+        webTestClient.method(HttpMethod.GET).uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("reader"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("registration", "RE04 ACT"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void testWritesRecordTheirChangesInTheOutbox() {
+        // Arrange
+        createVehicle("RE05 ACT");
+        Map<?, ?> vehicle = webTestClient.method(HttpMethod.GET).uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("reader"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("registration", "RE05 ACT"))
+                .exchange()
+                .returnResult(Map.class).getResponseBody().blockFirst();
+        long id = ((Number) vehicle.get("id")).longValue();
+
+        // Act
+        webTestClient.patch().uri("/api/v1/vehicle/{id}", id)
+                .headers(headers -> headers.setBearerAuth("technician"))
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"colour\":\"Red\"}")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.patch().uri("/api/v1/vehicle/{id}", id)
+                .headers(headers -> headers.setBearerAuth("technician"))
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"mileage\":\"-1\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.method(HttpMethod.DELETE).uri("/api/v1/vehicle")
+                .headers(headers -> headers.setBearerAuth("technician"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("id", String.valueOf(id)))
+                .exchange()
+                .expectStatus().isOk();
+
+        // Assert
+        List<VehicleOutboxRow> changes = vehicleOutboxRepository.findAll()
+                .filter(change -> change.vehicleId() == id)
+                .sort((first, second) -> Long.compare(first.id(), second.id()))
+                .collectList()
+                .block();
+        assertEquals(List.of(VehicleChangedEvent.Type.CREATED, VehicleChangedEvent.Type.UPDATED,
+                VehicleChangedEvent.Type.DELETED), changes.stream().map(VehicleOutboxRow::type).toList());
+        assertEquals(List.of("RE05ACT", "RE05ACT", "RE05ACT"),
+                changes.stream().map(VehicleOutboxRow::registrationKey).toList());
+        assertEquals(true, changes.get(1).payload().contains("\"colour\":\"Red\""));
+        assertNull(changes.get(2).payload());
+    }
+}
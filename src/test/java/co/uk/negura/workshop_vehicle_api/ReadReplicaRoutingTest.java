@@ -0,0 +1,144 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.config.DataSourceConfig;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.model.VehicleSearchCriteria;
+import co.uk.negura.workshop_vehicle_api.service.VehicleCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleListCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleOutboxWriter;
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import co.uk.negura.workshop_vehicle_api.service.VehicleService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;MODE=MySQL;NON_KEYWORDS=YEAR,VALUE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "vehicle.datasource.replica.enabled=true",
+        "vehicle.datasource.replica.jdbc-url=jdbc:h2:mem:replica;MODE=MySQL;NON_KEYWORDS=YEAR,VALUE",
+        "vehicle.datasource.replica.driver-class-name=org.h2.Driver",
+        "vehicle.datasource.replica.username=sa",
+        "vehicle.datasource.replica.password=",
+        "vehicle.cache.enabled=true"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({DataSourceConfig.class, VehicleService.class, VehicleCache.class, VehicleListCache.class,
+        VehiclePatchApplier.class, VehicleOutboxWriter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReadReplicaRoutingTest {
+
+    private static final String INSERT_REPLICA_VEHICLE_SQL = "INSERT INTO vehicles (registration, make, model, is_drivable, " +
+            "registration_key, version, created_at, updated_at) VALUES (?, 'Ford', 'Focus', TRUE, ?, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private VehicleCache vehicleCache;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private static VehicleEntity vehicle(String registration) {
+        return new VehicleEntity(null, registration, "Ford", "Focus", "Blue", "B1", true, null,
+                new BigDecimal("1.6"), "Petrol", "Manual", "Hatchback", 2015, 60000);
+    }
+
+    private static VehicleSearchCriteria fords() {
+        return new VehicleSearchCriteria("Ford", null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        // the replica is a second empty database, migrated the way replication would copy the schema
+        Flyway.configure().dataSource(replicaDataSource).load().migrate();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        vehicleCache.evictAll();
+        new JdbcTemplate(primaryDataSource).update("DELETE FROM vehicle_outbox");
+        new JdbcTemplate(primaryDataSource).update("DELETE FROM vehicles");
+        new JdbcTemplate(replicaDataSource).update("DELETE FROM vehicles");
+    }
+
+    @Test
+    public void testWritesGoToPrimaryAndReadOnlySearchesToReplica() {
+        // Arrange
+        new JdbcTemplate(replicaDataSource).update(INSERT_REPLICA_VEHICLE_SQL, "ZZ99 ZZZ", VehicleEntity.normalizeKey("ZZ99 ZZZ"));
+
+        // Act
+        ResponseEntity<?> created = vehicleService.createVehicle(vehicle("AB12 CDE"));
+        Map<?, ?> search = (Map<?, ?>) vehicleService.searchVehicles(fords(), PageRequest.of(0, 10), null).getBody();
+        ResponseEntity<?> primaryOnly = vehicleService.searchVehicle(Map.of("registration", "AB12 CDE"), null);
+        ResponseEntity<?> replicaOnly = vehicleService.searchVehicle(Map.of("registration", "ZZ99 ZZZ"), null);
+
+        // Assert
+        assertEquals(200, created.getStatusCode().value());
+        assertEquals(1, new JdbcTemplate(primaryDataSource).queryForObject("SELECT COUNT(*) FROM vehicles", Integer.class));
+        assertEquals(1L, search.get("totalElements"));
+        assertEquals(List.of("ZZ99 ZZZ"), ((List<?>) search.get("data")).stream()
+                .map(vehicle -> ((VehicleEntity) vehicle).getRegistration()).toList());
+        assertEquals(400, primaryOnly.getStatusCode().value());
+        assertEquals(200, replicaOnly.getStatusCode().value());
+    }
+
+    @Test
+    public void testCachedListIsReadFromPrimary() {
+        // Arrange
+        new JdbcTemplate(replicaDataSource).update(INSERT_REPLICA_VEHICLE_SQL, "ZZ99 ZZZ", VehicleEntity.normalizeKey("ZZ99 ZZZ"));
+        vehicleService.createVehicle(vehicle("AB12 CDE"));
+
+        // Act
+        ResponseEntity<?> all = vehicleService.getAllVehicles(null, null);
+
+        // Assert
+        assertEquals(200, all.getStatusCode().value());
+        String json = new String((byte[]) all.getBody(), StandardCharsets.UTF_8);
+        assertEquals(true, json.contains("AB12 CDE"));
+        assertEquals(false, json.contains("ZZ99 ZZZ"));
+    }
+
+    @Test
+    public void testVehiclesReadFromReplicaAreNotCached() {
+        // Arrange
+        new JdbcTemplate(replicaDataSource).update(INSERT_REPLICA_VEHICLE_SQL, "ZZ99 ZZZ", VehicleEntity.normalizeKey("ZZ99 ZZZ"));
+
+        // Act
+        ResponseEntity<?> found = vehicleService.searchVehicle(Map.of("registration", "ZZ99 ZZZ"), null);
+
+        // Assert
+        assertEquals(200, found.getStatusCode().value());
+        assertEquals(0, vehicleCache.size());
+    }
+}
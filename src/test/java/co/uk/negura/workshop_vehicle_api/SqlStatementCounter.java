@@ -0,0 +1,69 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.io.Serial;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Records every SQL statement Hibernate prepares, so a test can hold an operation to its query budget and an
+ * N+1 or a double fetch fails the build. Each test context gets its own counter, registered as the statement
+ * inspector of its session factory by {@link Config}, so statements from any thread of the request are counted,
+ * including the async dispatch of a streamed response. Statements sent through JdbcTemplate bypass Hibernate
+ * and are not counted.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final CopyOnWriteArrayList<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    /**
+     * Run the operation and fail if it prepared more statements than its budget.
+     * @param budget the maximum number of statements the operation may prepare.
+     * @param operation the operation to run.
+     * @return the result of the operation.
+     * @param <T> the type of the result.
+     * @throws Exception if the operation fails.
+     */
+    public <T> T withinBudget(int budget, Callable<T> operation) throws Exception {
+        statements.clear();
+        T result = operation.call();
+        if (statements.size() > budget) {
+            fail("Expected at most " + budget + " statements but " + statements.size() + " were prepared:\n"
+                    + String.join("\n", statements));
+        }
+        return result;
+    }
+
+    /**
+     * Registers a counter per test context as the statement inspector of Hibernate.
+     */
+    @TestConfiguration
+    public static class Config {
+
+        @Bean
+        public SqlStatementCounter sqlStatementCounter() {
+            return new SqlStatementCounter();
+        }
+
+        @Bean
+        public HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter sqlStatementCounter) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementCounter);
+        }
+    }
+}
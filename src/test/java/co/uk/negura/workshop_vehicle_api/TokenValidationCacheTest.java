@@ -0,0 +1,76 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.util.TokenValidationCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenValidationCacheTest {
+
+    private static String tokenExpiringAt(Instant expiry) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(("{\"sub\":\"tech\",\"exp\":" + expiry.getEpochSecond() + "}")
+                .getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".signature";
+    }
+
+    @Test
+    public void testCachesSuccessfulValidationUntilInvalidated() {
+        // Arrange
+        TokenValidationCache cache = new TokenValidationCache(true, 10, Duration.ofMinutes(5));
+        String token = tokenExpiringAt(Instant.now().plus(Duration.ofHours(1)));
+        ResponseEntity<?> response = ResponseEntity.ok("valid");
+
+        // Act
+        ResponseEntity<?> beforePut = cache.get(token);
+        cache.put(token, response);
+        ResponseEntity<?> afterPut = cache.get(token);
+        cache.invalidate(token);
+        ResponseEntity<?> afterInvalidate = cache.get(token);
+
+        // Assert
+        assertNull(beforePut);
+        assertSame(response, afterPut);
+        assertNull(afterInvalidate);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testDoesNotCacheExpiredToken() {
+        // Arrange
+        TokenValidationCache cache = new TokenValidationCache(true, 10, Duration.ofMinutes(5));
+        String token = tokenExpiringAt(Instant.now().minus(Duration.ofMinutes(1)));
+
+        // Act
+        cache.put(token, ResponseEntity.ok("valid"));
+
+        // Assert
+        assertNull(cache.get(token));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedEntryWhenFull() {
+        // Arrange
+        TokenValidationCache cache = new TokenValidationCache(true, 1, Duration.ofMinutes(5));
+        String firstToken = tokenExpiringAt(Instant.now().plus(Duration.ofHours(1)));
+        String secondToken = tokenExpiringAt(Instant.now().plus(Duration.ofHours(2)));
+
+        // Act
+        cache.put(firstToken, ResponseEntity.ok("first"));
+        cache.put(secondToken, ResponseEntity.ok("second"));
+
+        // Assert
+        assertNull(cache.get(firstToken));
+        assertNotNull(cache.get(secondToken));
+        assertEquals(1, cache.getEvictionCount());
+    }
+}
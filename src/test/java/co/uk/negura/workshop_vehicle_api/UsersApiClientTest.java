@@ -0,0 +1,165 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.util.UsersApiClient;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UsersApiClientTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final List<UsersApiClient> clients = new ArrayList<>();
+    private final List<Integer> remotePorts = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    public void tearDown() {
+        clients.forEach(UsersApiClient::destroy);
+        servers.forEach(server -> server.stop(0));
+    }
+
+    private ServiceInstance startInstance(String id, int status, AtomicInteger requests) throws IOException {
+        return startInstance(id, status, requests, Duration.ZERO);
+    }
+
+    private ServiceInstance startInstance(String id, int status, AtomicInteger requests, Duration latency) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v1/auth/validate", exchange -> {
+            requests.incrementAndGet();
+            remotePorts.add(exchange.getRemoteAddress().getPort());
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = id.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.start();
+        servers.add(server);
+        return new DefaultServiceInstance(id, UsersApiClient.SERVICE_ID, "localhost", server.getAddress().getPort(), false);
+    }
+
+    private UsersApiClient client(List<ServiceInstance> instances, int maxRetries, int slidingWindowSize) {
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getInstances(UsersApiClient.SERVICE_ID)).thenReturn(instances);
+        UsersApiClient client = new UsersApiClient(WebClient.builder(), discoveryClient, meterRegistry, Duration.ofSeconds(1),
+                Duration.ofSeconds(2), 10, maxRetries, Duration.ofMillis(1), 50, slidingWindowSize, Duration.ofMinutes(1));
+        clients.add(client);
+        return client;
+    }
+
+    @Test
+    public void testRequestsAreSpreadAcrossInstancesAndRetriedOnServerErrors() throws IOException {
+        // Arrange
+        AtomicInteger failingRequests = new AtomicInteger();
+        AtomicInteger healthyRequests = new AtomicInteger();
+        UsersApiClient client = client(List.of(startInstance("failing", 503, failingRequests),
+                startInstance("healthy", 200, healthyRequests)), 2, 20);
+
+        // Act
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            bodies.add(client.get("/api/v1/auth/validate", "token").block().getBody());
+        }
+
+        // Assert
+        assertEquals(List.of("healthy", "healthy", "healthy", "healthy"), bodies);
+        assertEquals(4, failingRequests.get());
+        assertEquals(4, healthyRequests.get());
+        assertEquals(4, meterRegistry.get("users.api.requests").tag("outcome", "server_error").timer().count());
+        assertEquals(4, meterRegistry.get("users.api.requests").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    public void testConcurrentIdenticalRequestsShareOneRequest() throws IOException {
+        // Arrange
+        AtomicInteger requests = new AtomicInteger();
+        UsersApiClient client = client(List.of(startInstance("users-api", 200, requests, Duration.ofMillis(300))), 2, 20);
+
+        // Act
+        List<ResponseEntity<String>> responses = Flux.range(0, 12)
+                .flatMap(i -> client.get("/api/v1/auth/validate", "dashboard-token"))
+                .collectList()
+                .block();
+        client.get("/api/v1/auth/validate", "dashboard-token").block();
+
+        // Assert
+        assertEquals(12, responses.size());
+        assertTrue(responses.stream().allMatch(response -> "users-api".equals(response.getBody())));
+        assertEquals(2, requests.get());
+        assertEquals(11, meterRegistry.get("users.api.requests.coalesced").functionCounter().count());
+    }
+
+    @Test
+    public void testClientErrorsAreReturnedWithoutRetry() throws IOException {
+        // Arrange
+        AtomicInteger requests = new AtomicInteger();
+        UsersApiClient client = client(List.of(startInstance("users-api", 401, requests)), 2, 20);
+
+        // Act
+        ResponseEntity<String> response = client.get("/api/v1/auth/validate", "expired").block();
+
+        // Assert
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testCircuitBreakerFailsFastOnceOpen() throws IOException {
+        // Arrange
+        AtomicInteger requests = new AtomicInteger();
+        UsersApiClient client = client(List.of(startInstance("users-api", 500, requests)), 0, 4);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(WebClientResponseException.class, () -> client.get("/api/v1/auth/validate", "token").block());
+        }
+
+        // Act & Assert
+        assertThrows(CallNotPermittedException.class, () -> client.get("/api/v1/auth/validate", "token").block());
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    public void testDestroyClosesThePooledConnections() throws IOException {
+        // Arrange
+        AtomicInteger requests = new AtomicInteger();
+        UsersApiClient client = client(List.of(startInstance("users-api", 200, requests)), 0, 20);
+        client.get("/api/v1/auth/validate", "token").block();
+        client.get("/api/v1/auth/validate", "other-token").block();
+
+        // Act
+        client.destroy();
+        client.get("/api/v1/auth/validate", "token").block();
+
+        // Assert
+        assertEquals(3, requests.get());
+        assertFalse(remotePorts.subList(0, 2).contains(remotePorts.get(2)));
+    }
+}
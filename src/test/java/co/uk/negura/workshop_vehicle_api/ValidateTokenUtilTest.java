@@ -0,0 +1,133 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.util.TokenRejectionCache;
+import co.uk.negura.workshop_vehicle_api.util.TokenValidationCache;
+import co.uk.negura.workshop_vehicle_api.util.UsersApiClient;
+import co.uk.negura.workshop_vehicle_api.util.ValidateTokenUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class ValidateTokenUtilTest {
+
+    private final UsersApiClient usersApiClient = mock(UsersApiClient.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ValidateTokenUtil validateTokenUtil;
+
+    private static String tokenExpiringAt(Instant expiry) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(("{\"sub\":\"tech\",\"exp\":" + expiry.getEpochSecond() + "}")
+                .getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".signature";
+    }
+
+    @BeforeEach
+    public void setUp() {
+        validateTokenUtil = new ValidateTokenUtil(usersApiClient,
+                new TokenValidationCache(true, 10, Duration.ofMinutes(5)),
+                new TokenRejectionCache(true, 10, Duration.ofSeconds(30)), meterRegistry);
+        ReflectionTestUtils.setField(validateTokenUtil, "validateTokenApiUrl", "/api/v1/auth/validate");
+        ReflectionTestUtils.setField(validateTokenUtil, "clockSkew", Duration.ofSeconds(30));
+    }
+
+    private double rejectedLocally(String reason) {
+        return meterRegistry.counter("auth.token.rejected.locally", "reason", reason).count();
+    }
+
+    @Test
+    public void testMalformedAndExpiredTokensAreRejectedWithoutRequest() {
+        // Arrange
+        String expired = tokenExpiringAt(Instant.now().minus(Duration.ofMinutes(5)));
+
+        // Act
+        ResponseEntity<?> notJwt = validateTokenUtil.validateToken("not-a-jwt");
+        ResponseEntity<?> badPayload = validateTokenUtil.validateToken("aGVhZGVy.bm90IGpzb24.c2ln");
+        ResponseEntity<?> expiredResponse = validateTokenUtil.validateToken(expired);
+
+        // Assert
+        assertEquals(HttpStatus.UNAUTHORIZED, notJwt.getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, badPayload.getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, expiredResponse.getStatusCode());
+        assertEquals("Bearer token has expired", ((Map<?, ?>) expiredResponse.getBody()).get("message"));
+        assertEquals(2, rejectedLocally("malformed"));
+        assertEquals(1, rejectedLocally("expired"));
+        verifyNoInteractions(usersApiClient);
+    }
+
+    @Test
+    public void testRejectedTokenIsNotSentAgain() {
+        // Arrange
+        String revoked = tokenExpiringAt(Instant.now().plus(Duration.ofHours(1)));
+        when(usersApiClient.get(anyString(), any()))
+                .thenReturn(Mono.just(new ResponseEntity<>("Token revoked", HttpStatus.UNAUTHORIZED)));
+
+        // Act
+        ResponseEntity<?> first = validateTokenUtil.validateToken(revoked);
+        ResponseEntity<?> second = validateTokenUtil.validateToken(revoked);
+
+        // Assert
+        assertEquals(HttpStatus.UNAUTHORIZED, first.getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, second.getStatusCode());
+        assertEquals(1, rejectedLocally("recently_rejected"));
+        verify(usersApiClient, times(1)).get("/api/v1/auth/validate", revoked);
+    }
+
+    @Test
+    public void testUnavailableServiceIsNotCachedAsRejection() {
+        // Arrange
+        String token = tokenExpiringAt(Instant.now().plus(Duration.ofHours(1)));
+        when(usersApiClient.get(anyString(), any()))
+                .thenReturn(Mono.just(new ResponseEntity<>("Bad gateway", HttpStatus.BAD_GATEWAY)));
+
+        // Act
+        validateTokenUtil.validateToken(token);
+        ResponseEntity<?> retried = validateTokenUtil.validateToken(token);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_GATEWAY, retried.getStatusCode());
+        verify(usersApiClient, times(2)).get("/api/v1/auth/validate", token);
+    }
+
+    @Test
+    public void testRateLimitedAndNotFoundAreNotCachedAsRejection() {
+        // Arrange
+        String token = tokenExpiringAt(Instant.now().plus(Duration.ofHours(1)));
+        when(usersApiClient.get(anyString(), any()))
+                .thenReturn(Mono.just(new ResponseEntity<>("Too many requests", HttpStatus.TOO_MANY_REQUESTS)))
+                .thenReturn(Mono.just(new ResponseEntity<>("Not found", HttpStatus.NOT_FOUND)))
+                .thenReturn(Mono.just(new ResponseEntity<>("Token revoked", HttpStatus.UNAUTHORIZED)));
+
+        // Act
+        ResponseEntity<?> rateLimited = validateTokenUtil.validateToken(token);
+        ResponseEntity<?> notFound = validateTokenUtil.validateToken(token);
+        ResponseEntity<?> rejected = validateTokenUtil.validateToken(token);
+
+        // Assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rateLimited.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, notFound.getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, rejected.getStatusCode());
+        verify(usersApiClient, times(3)).get("/api/v1/auth/validate", token);
+    }
+}
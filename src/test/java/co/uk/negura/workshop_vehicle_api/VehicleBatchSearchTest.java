@@ -0,0 +1,91 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleBatchRequest;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import co.uk.negura.workshop_vehicle_api.service.VehicleCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleListCache;
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import co.uk.negura.workshop_vehicle_api.service.VehicleService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class VehicleBatchSearchTest {
+
+    private VehicleRepository vehicleRepository;
+    private VehicleService vehicleService;
+
+    private static VehicleEntity vehicle(Long id, String registration) {
+        VehicleEntity vehicle = new VehicleEntity(id, registration, "Ford", "Focus", "Blue", "B1", true, null,
+                new BigDecimal("1.6"), "Petrol", "Manual", "Hatchback", 2015, 60000);
+        ReflectionTestUtils.setField(vehicle, "registrationKey", VehicleEntity.normalizeKey(registration));
+        return vehicle;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        vehicleRepository = mock(VehicleRepository.class);
+        vehicleService = new VehicleService(vehicleRepository, mock(EntityManager.class), objectMapper,
+                new VehicleCache(true, 100, Duration.ofMinutes(10)), new VehiclePatchApplier(objectMapper),
+                mock(ApplicationEventPublisher.class), new VehicleListCache(true));
+        ReflectionTestUtils.setField(vehicleService, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(vehicleService, "batchChunkSize", 2);
+    }
+
+    @Test
+    public void testBatchSearchReturnsVehiclesInRequestedOrderWithMisses() {
+        // Arrange
+        when(vehicleRepository.findAllById(List.of(3L, 1L))).thenReturn(List.of(vehicle(1L, "AB12 CDE"), vehicle(3L, "CD34 EFG")));
+        when(vehicleRepository.findAllById(List.of(2L))).thenReturn(List.of());
+        when(vehicleRepository.findByRegistrationKeyIn(List.of("EF56GHI", "XX99XXX")))
+                .thenReturn(List.of(vehicle(5L, "EF56 GHI")));
+
+        // Act
+        ResponseEntity<?> response = vehicleService.batchSearchVehicles(
+                new VehicleBatchRequest(List.of(3L, 1L, 2L), List.of("ef56 ghi", "XX99 XXX")), null);
+
+        // Assert
+        Map<?, ?> body = (Map<?, ?>) response.getBody();
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(3, body.get("found"));
+        assertEquals(List.of(3L, 1L, 5L), ((List<?>) body.get("data")).stream().map(v -> ((VehicleEntity) v).getId()).toList());
+        assertEquals(List.of(Map.of("id", 2L), Map.of("registration", "XX99 XXX")), body.get("misses"));
+        verify(vehicleRepository, times(2)).findAllById(anyIterable());
+    }
+
+    @Test
+    public void testBatchSearchServesCachedVehiclesWithoutQuerying() {
+        // Arrange
+        when(vehicleRepository.findAllById(List.of(1L))).thenReturn(List.of(vehicle(1L, "AB12 CDE")));
+        vehicleService.batchSearchVehicles(new VehicleBatchRequest(List.of(1L), null), null);
+
+        // Act
+        ResponseEntity<?> response = vehicleService.batchSearchVehicles(new VehicleBatchRequest(List.of(1L), List.of("AB12CDE")), null);
+
+        // Assert
+        Map<?, ?> body = (Map<?, ?>) response.getBody();
+        assertEquals(2, body.get("found"));
+        verify(vehicleRepository, times(1)).findAllById(anyIterable());
+        verify(vehicleRepository, never()).findByRegistrationKeyIn(anyCollection());
+    }
+}
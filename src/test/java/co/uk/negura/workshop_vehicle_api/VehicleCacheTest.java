@@ -0,0 +1,48 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.service.VehicleCache;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class VehicleCacheTest {
+
+    private final VehicleCache vehicleCache = new VehicleCache(true, 10, Duration.ofMinutes(1));
+
+    private static VehicleEntity vehicle() {
+        return new VehicleEntity(1L, "AB12 CDE", "Ford", "Focus", "Blue", "B1", true, null,
+                new BigDecimal("1.6"), "Petrol", "Manual", "Hatchback", 2015, 60000);
+    }
+
+    @Test
+    public void testPutCachesVehicleLoadedInCurrentGeneration() {
+        // Arrange
+        VehicleEntity vehicle = vehicle();
+
+        // Act
+        vehicleCache.put(vehicleCache.generation(), vehicle);
+
+        // Assert
+        assertSame(vehicle, vehicleCache.getById(1L));
+    }
+
+    @Test
+    public void testPutIgnoresVehicleLoadedBeforeChangeCommitted() {
+        // Arrange
+        long generation = vehicleCache.generation();
+        VehicleEntity stale = vehicle();
+        vehicleCache.onVehicleChanged(new VehicleChangedEvent(VehicleChangedEvent.Type.UPDATED, 1L, "AB12CDE"));
+
+        // Act
+        vehicleCache.put(generation, stale);
+
+        // Assert
+        assertNull(vehicleCache.getById(1L));
+    }
+}
@@ -0,0 +1,128 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import co.uk.negura.workshop_vehicle_api.service.VehicleCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleChangeService;
+import co.uk.negura.workshop_vehicle_api.service.VehicleListCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleOutboxWriter;
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import co.uk.negura.workshop_vehicle_api.service.VehicleService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:delta;MODE=MySQL;NON_KEYWORDS=YEAR,VALUE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "vehicle.outbox.settleTime=PT0S"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({VehicleService.class, VehicleCache.class, VehicleListCache.class, VehiclePatchApplier.class,
+        VehicleOutboxWriter.class, VehicleChangeService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class VehicleDeltaTest {
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private VehicleChangeService vehicleChangeService;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    private static VehicleEntity vehicle(String registration) {
+        return new VehicleEntity(null, registration, "Ford", "Focus", "Blue", "B1", true, null,
+                new BigDecimal("1.6"), "Petrol", "Manual", "Hatchback", 2015, 60000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        vehicleRepository.purgeDeletedBefore(Instant.now().plus(Duration.ofDays(1)));
+        vehicleRepository.deleteAll();
+    }
+
+    @Test
+    public void testDeleteLeavesTombstoneAndFreesRegistration() {
+        // Arrange
+        VehicleEntity created = (VehicleEntity) vehicleService.createVehicle(vehicle("AB12 CDE")).getBody();
+
+        // Act
+        ResponseEntity<?> deleted = vehicleService.deleteVehicle(Map.of("id", created.getId().toString()), null);
+        ResponseEntity<?> recreated = vehicleService.createVehicle(vehicle("AB12 CDE"));
+
+        // Assert
+        assertEquals(200, deleted.getStatusCode().value());
+        assertEquals(200, recreated.getStatusCode().value());
+        assertFalse(vehicleRepository.findAll().stream().anyMatch(vehicle -> vehicle.getId().equals(created.getId())));
+        assertEquals(400, vehicleService.deleteVehicle(Map.of("id", created.getId().toString()), null).getStatusCode().value());
+    }
+
+    @Test
+    public void testDeltaPagesThroughChangesAndDeletions() {
+        // Arrange
+        VehicleEntity first = (VehicleEntity) vehicleService.createVehicle(vehicle("AB12 CDE")).getBody();
+        VehicleEntity second = (VehicleEntity) vehicleService.createVehicle(vehicle("CD34 EFG")).getBody();
+        vehicleService.createVehicle(vehicle("EF56 GHI"));
+        vehicleService.deleteVehicle(Map.of("id", first.getId().toString()), null);
+
+        // Act
+        Map<?, ?> page = (Map<?, ?>) vehicleChangeService.getVehicleDelta(null, null, 2).getBody();
+        Map<?, ?> rest = (Map<?, ?>) vehicleChangeService.getVehicleDelta((Instant) page.get("nextSince"),
+                (Long) page.get("nextAfterId"), 2).getBody();
+        Map<?, ?> caughtUp = (Map<?, ?>) vehicleChangeService.getVehicleDelta((Instant) rest.get("nextSince"),
+                (Long) rest.get("nextAfterId"), 2).getBody();
+
+        // Assert
+        assertEquals(2, page.get("size"));
+        assertEquals(true, page.get("hasMore"));
+        assertEquals(List.of(second.getId()), ((List<?>) page.get("data")).stream()
+                .map(vehicle -> ((VehicleEntity) vehicle).getId()).limit(1).toList());
+        assertEquals(1, rest.get("size"));
+        assertEquals(List.of(first.getId()), rest.get("deleted"));
+        assertEquals(0, caughtUp.get("size"));
+        assertEquals(false, caughtUp.get("hasMore"));
+        assertEquals(rest.get("nextSince"), caughtUp.get("nextSince"));
+    }
+
+    @Test
+    public void testPurgeRemovesTombstonesAndExpiresOldWatermarks() {
+        // Arrange
+        VehicleEntity created = (VehicleEntity) vehicleService.createVehicle(vehicle("AB12 CDE")).getBody();
+        vehicleService.deleteVehicle(Map.of("id", created.getId().toString()), null);
+
+        // Act
+        int purged = vehicleRepository.purgeDeletedBefore(Instant.now().plusSeconds(1));
+        ResponseEntity<?> delta = vehicleChangeService.getVehicleDelta(Instant.now().minus(Duration.ofDays(31)), null, null);
+
+        // Assert
+        assertEquals(1, purged);
+        assertEquals(410, delta.getStatusCode().value());
+        Map<?, ?> all = (Map<?, ?>) vehicleChangeService.getVehicleDelta(null, null, null).getBody();
+        assertNotNull(all);
+        assertTrue(((List<?>) all.get("deleted")).isEmpty());
+    }
+}
@@ -0,0 +1,189 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.model.VehicleImportResult;
+import co.uk.negura.workshop_vehicle_api.model.VehicleOutboxEvent;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleOutboxRepository;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import co.uk.negura.workshop_vehicle_api.service.VehicleChangeService;
+import co.uk.negura.workshop_vehicle_api.service.VehicleImportService;
+import co.uk.negura.workshop_vehicle_api.service.VehicleListCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:import;MODE=MySQL;NON_KEYWORDS=YEAR,VALUE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "vehicle.outbox.settleTime=PT0.5S"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, JdbcTemplateAutoConfiguration.class})
+@Import({VehicleImportService.class, VehicleListCache.class, VehicleChangeService.class,
+        VehicleImportTest.SlowBatchConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class VehicleImportTest {
+
+    @Autowired
+    private VehicleImportService vehicleImportService;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private VehicleOutboxRepository vehicleOutboxRepository;
+
+    @Autowired
+    private VehicleChangeService vehicleChangeService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Holds every batch of vehicle inserts for longer than the settle time before the batch goes on to commit,
+     * the way a large batch on a busy database would.
+     */
+    @TestConfiguration
+    static class SlowBatchConfig {
+
+        static final Duration INSERT_DELAY = Duration.ofSeconds(1);
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource) {
+                @Override
+                public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                               ParameterizedPreparedStatementSetter<T> pss) {
+                    int[][] updateCounts = super.batchUpdate(sql, batchArgs, batchSize, pss);
+                    if (sql.startsWith("INSERT INTO vehicles ")) {
+                        try {
+                            Thread.sleep(INSERT_DELAY.toMillis());
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return updateCounts;
+                }
+            };
+        }
+    }
+
+    private static ByteArrayInputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        vehicleOutboxRepository.deleteAll();
+        vehicleRepository.deleteAll();
+    }
+
+    @Test
+    public void testImportReportsOnlyInsertedRowsAsCreated() {
+        // Arrange
+        vehicleRepository.saveAndFlush(new VehicleEntity(null, "AB12 CDE", "Ford", "Focus", null, null, true,
+                "VIN1", new BigDecimal("1.6"), null, null, null, 2015, 60000));
+        String body = "[{\"registration\":\"CD34 EFG\",\"make\":\"Ford\",\"model\":\"Fiesta\",\"engineSize\":\"1.25\"}," +
+                "{\"registration\":\"ab12cde\",\"make\":\"Ford\",\"model\":\"Focus\"}," +
+                "{\"registration\":\"EF56 GHI\",\"make\":\"Ford\",\"model\":\"Kuga\",\"vin\":\"vin1\"}]";
+
+        // Act
+        Map<?, ?> response = (Map<?, ?>) vehicleImportService.importJson(json(body)).getBody();
+
+        // Assert
+        assertEquals(1L, response.get("created"));
+        assertEquals(2L, response.get("duplicates"));
+        List<?> results = (List<?>) response.get("results");
+        assertEquals(VehicleImportResult.CREATED, ((VehicleImportResult) results.get(0)).status());
+        assertEquals(VehicleImportResult.DUPLICATE, ((VehicleImportResult) results.get(2)).status());
+        assertEquals(2, vehicleRepository.count());
+    }
+
+    @Test
+    public void testImportRejectsValuesThatDoNotFitTheirColumns() {
+        // Arrange
+        String body = "[{\"registration\":\"CD34 EFG\",\"make\":\"Ford\",\"model\":\"Fiesta\",\"engineSize\":\"1598\"}," +
+                "{\"registration\":\"EF56 GHI\",\"make\":\"Ford\",\"model\":\"Kuga\",\"mileage\":\"-1\"}," +
+                "{\"registration\":\"GH78 IJK\",\"make\":\"Ford\",\"model\":\"" + "K".repeat(256) + "\"}]";
+
+        // Act
+        Map<?, ?> response = (Map<?, ?>) vehicleImportService.importJson(json(body)).getBody();
+
+        // Assert
+        assertEquals(0L, response.get("created"));
+        assertEquals(3L, response.get("invalid"));
+        assertEquals("Vehicle model must be at most 255 characters",
+                ((VehicleImportResult) ((List<?>) response.get("results")).get(2)).message());
+        assertEquals(0, vehicleRepository.count());
+    }
+
+    @Test
+    public void testImportWritesOutboxChangeForEachCreatedVehicle() throws Exception {
+        // Arrange
+        vehicleRepository.saveAndFlush(new VehicleEntity(null, "AB12 CDE", "Ford", "Focus", null, null, true,
+                null, null, null, null, null, null, null));
+        String body = "[{\"registration\":\"CD34 EFG\",\"make\":\"Ford\",\"model\":\"Fiesta\"}," +
+                "{\"registration\":\"AB12 CDE\",\"make\":\"Ford\",\"model\":\"Focus\"}," +
+                "{\"registration\":\"EF56 GHI\",\"make\":\"Ford\",\"model\":\"Kuga\"}]";
+
+        // Act
+        vehicleImportService.importJson(json(body));
+
+        // Assert
+        List<VehicleOutboxEvent> events = vehicleOutboxRepository.findAll().stream()
+                .sorted((first, second) -> Long.compare(first.getId(), second.getId()))
+                .toList();
+        assertEquals(List.of("CD34EFG", "EF56GHI"), events.stream().map(VehicleOutboxEvent::getRegistrationKey).toList());
+        assertEquals(VehicleChangedEvent.Type.CREATED, events.get(0).getType());
+        assertEquals(vehicleRepository.findByRegistrationKey("CD34EFG").orElseThrow().getId(), events.get(0).getVehicleId());
+        assertEquals("Fiesta", objectMapper.readTree(events.get(0).getPayload()).get("model").asText());
+    }
+
+    @Test
+    public void testSlowBatchIsNotSettledWhenItCommits() throws InterruptedException {
+        // Arrange
+        String body = "[{\"registration\":\"CD34 EFG\",\"make\":\"Ford\",\"model\":\"Fiesta\"}," +
+                "{\"registration\":\"EF56 GHI\",\"make\":\"Ford\",\"model\":\"Kuga\"}]";
+
+        // Act
+        vehicleImportService.importJson(json(body));
+        Map<?, ?> changesAtCommit = (Map<?, ?>) vehicleChangeService.getVehicleChanges(null, 10).getBody();
+        Map<?, ?> deltaAtCommit = (Map<?, ?>) vehicleChangeService.getVehicleDelta(null, null, 10).getBody();
+        Thread.sleep(Duration.ofMillis(600).toMillis());
+        Map<?, ?> changesSettled = (Map<?, ?>) vehicleChangeService.getVehicleChanges(null, 10).getBody();
+        Map<?, ?> deltaSettled = (Map<?, ?>) vehicleChangeService.getVehicleDelta(null, null, 10).getBody();
+
+        // Assert
+        assertEquals(0, changesAtCommit.get("size"));
+        assertEquals(0, deltaAtCommit.get("size"));
+        assertEquals(2, changesSettled.get("size"));
+        assertEquals(2, deltaSettled.get("size"));
+    }
+}
@@ -0,0 +1,96 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import co.uk.negura.workshop_vehicle_api.service.VehicleCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleListCache;
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import co.uk.negura.workshop_vehicle_api.service.VehicleService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class VehicleListCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private VehicleRepository vehicleRepository;
+    private VehicleListCache vehicleListCache;
+    private VehicleService vehicleService;
+
+    @BeforeEach
+    public void setUp() {
+        vehicleRepository = mock(VehicleRepository.class);
+        vehicleListCache = new VehicleListCache(true);
+        vehicleService = new VehicleService(vehicleRepository, mock(EntityManager.class), objectMapper,
+                new VehicleCache(false, 1, Duration.ofMinutes(1)), new VehiclePatchApplier(objectMapper),
+                mock(ApplicationEventPublisher.class), vehicleListCache);
+        when(vehicleRepository.findAll()).thenReturn(List.of(new VehicleEntity(1L, "AB12 CDE", "Ford", "Focus", "Blue",
+                "B1", true, null, new BigDecimal("1.6"), "Petrol", "Manual", "Hatchback", 2015, 60000)));
+    }
+
+    @Test
+    public void testGetAllVehiclesServesCachedPayloadUntilVehicleChanges() throws IOException {
+        // Arrange
+        ResponseEntity<?> first = vehicleService.getAllVehicles(null, null);
+
+        // Act
+        ResponseEntity<?> cached = vehicleService.getAllVehicles(null, "gzip, deflate, br");
+        vehicleListCache.onVehicleChanged(new VehicleChangedEvent(VehicleChangedEvent.Type.UPDATED, 1L, "AB12CDE"));
+        vehicleService.getAllVehicles(null, null);
+
+        // Assert
+        verify(vehicleRepository, times(2)).findAll();
+        assertNull(first.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("gzip", cached.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        byte[] json = (byte[]) first.getBody();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream((byte[]) cached.getBody()))) {
+            assertArrayEquals(json, gzip.readAllBytes());
+        }
+        JsonNode vehicles = objectMapper.readTree(json);
+        assertEquals("AB12 CDE", vehicles.get(0).get("registration").asText());
+    }
+
+    @Test
+    public void testPutIgnoresPayloadBuiltBeforeChange() {
+        // Arrange
+        long generation = vehicleListCache.generation();
+        vehicleListCache.invalidate();
+
+        // Act
+        vehicleListCache.put(generation, VehicleListCache.Payload.of("[]".getBytes()));
+
+        // Assert
+        assertNull(vehicleListCache.get());
+    }
+
+    @Test
+    public void testGetAllVehiclesSkipsGzipWhenRejected() {
+        // Act
+        ResponseEntity<?> response = vehicleService.getAllVehicles(null, "gzip;q=0, identity");
+
+        // Assert
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaders().getFirst(HttpHeaders.VARY));
+    }
+}
@@ -0,0 +1,64 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class VehicleMigrationTest {
+
+    private static final String INSERT_LEGACY_VEHICLE_SQL = "INSERT INTO vehicles (registration, make, model, " +
+            "is_drivable, vin, engine_size, year, mileage) VALUES (?, 'Ford', 'Focus', TRUE, ?, ?, ?, ?)";
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;NON_KEYWORDS=YEAR,VALUE;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    private Flyway flyway(String target) {
+        return Flyway.configure().dataSource(dataSource).target(target).load();
+    }
+
+    @Test
+    public void migratesVehiclesSavedBeforeTheSeriesColumnsExisted() {
+        // Arrange
+        flyway("1").migrate();
+        jdbcTemplate.update(INSERT_LEGACY_VEHICLE_SQL, "ab12 cde", "vin 123", "1598", "2015", "60,000");
+        jdbcTemplate.update(INSERT_LEGACY_VEHICLE_SQL, "AB12CDE", " ", "1.6", "unknown", "12000");
+
+        // Act
+        flyway("latest").migrate();
+
+        // Assert
+        Map<String, Object> original = jdbcTemplate.queryForMap("SELECT * FROM vehicles WHERE id = 1");
+        assertEquals("AB12CDE", original.get("REGISTRATION_KEY"));
+        assertEquals("VIN123", original.get("VIN_KEY"));
+        assertEquals(0L, ((Number) original.get("VERSION")).longValue());
+        assertNotNull(original.get("CREATED_AT"));
+        assertNotNull(original.get("UPDATED_AT"));
+        assertNull(original.get("DELETED_AT"));
+        assertEquals(0, new BigDecimal("1.6").compareTo((BigDecimal) original.get("ENGINE_SIZE")));
+        assertEquals(2015, original.get("YEAR"));
+        assertEquals(60000, original.get("MILEAGE"));
+        Map<String, Object> duplicate = jdbcTemplate.queryForMap("SELECT * FROM vehicles WHERE id = 2");
+        assertNull(duplicate.get("REGISTRATION_KEY"));
+        assertNull(duplicate.get("VIN_KEY"));
+        assertNull(duplicate.get("YEAR"));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vehicle_outbox", Integer.class));
+    }
+}
@@ -0,0 +1,184 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleChange;
+import co.uk.negura.workshop_vehicle_api.model.VehicleChangedEvent;
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleOutboxRepository;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import co.uk.negura.workshop_vehicle_api.service.InMemoryVehicleChangeSink;
+import co.uk.negura.workshop_vehicle_api.service.VehicleCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleChangeService;
+import co.uk.negura.workshop_vehicle_api.service.VehicleListCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleOutboxPublisher;
+import co.uk.negura.workshop_vehicle_api.service.VehicleOutboxWriter;
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import co.uk.negura.workshop_vehicle_api.service.VehicleService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;NON_KEYWORDS=YEAR,VALUE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "vehicle.outbox.settleTime=PT0S"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({VehicleService.class, VehicleCache.class, VehicleListCache.class, VehiclePatchApplier.class,
+        VehicleOutboxWriter.class, VehicleOutboxPublisher.class, InMemoryVehicleChangeSink.class, VehicleChangeService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class VehicleOutboxTest {
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private VehicleChangeService vehicleChangeService;
+
+    @Autowired
+    private VehicleOutboxPublisher vehicleOutboxPublisher;
+
+    @Autowired
+    private InMemoryVehicleChangeSink vehicleChangeSink;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private VehicleOutboxRepository vehicleOutboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static VehicleEntity vehicle(String registration) {
+        return new VehicleEntity(null, registration, "Ford", "Focus", "Blue", "B1", true, null,
+                new BigDecimal("1.6"), "Petrol", "Manual", "Hatchback", 2015, 60000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        vehicleOutboxRepository.deleteAll();
+        vehicleRepository.deleteAll();
+    }
+
+    @Test
+    public void testWritesAreRecordedInOutboxAndPublishedOnce() throws Exception {
+        // Arrange
+        VehicleEntity created = (VehicleEntity) vehicleService.createVehicle(vehicle("AB12 CDE")).getBody();
+        vehicleService.mergeUpdateVehicle(created.getId(), objectMapper.readTree("{\"colour\":\"Red\"}"), null);
+        vehicleService.deleteVehicle(Map.of("id", created.getId().toString()), null);
+        long publishedBefore = vehicleChangeSink.getPublishedCount();
+
+        // Act
+        int published = vehicleOutboxPublisher.publishPending();
+        int republished = vehicleOutboxPublisher.publishPending();
+
+        // Assert
+        assertEquals(3, published);
+        assertEquals(0, republished);
+        assertEquals(publishedBefore + 3, vehicleChangeSink.getPublishedCount());
+        List<VehicleChange> changes = vehicleChangeSink.getRecentChanges();
+        List<VehicleChange> latest = changes.subList(changes.size() - 3, changes.size());
+        assertEquals(List.of(VehicleChangedEvent.Type.CREATED, VehicleChangedEvent.Type.UPDATED, VehicleChangedEvent.Type.DELETED),
+                latest.stream().map(VehicleChange::type).toList());
+        assertEquals("Red", objectMapper.readTree(latest.get(1).vehicle()).get("colour").asText());
+        assertNull(latest.get(2).vehicle());
+        assertTrue(vehicleOutboxRepository.findAll().stream().allMatch(event -> event.getPublishedAt() != null));
+    }
+
+    @Test
+    public void testFailedWriteLeavesNoOutboxChange() {
+        // Arrange
+        vehicleService.createVehicle(vehicle("AB12 CDE"));
+
+        // Act
+        ResponseEntity<?> duplicate = vehicleService.createVehicle(vehicle("ab12cde"));
+
+        // Assert
+        assertEquals(400, duplicate.getStatusCode().value());
+        assertEquals(1, vehicleOutboxRepository.count());
+    }
+
+    @Test
+    public void testUpdateToExistingRegistrationIsRejected() throws Exception {
+        // Arrange
+        vehicleService.createVehicle(vehicle("AB12 CDE"));
+        VehicleEntity other = (VehicleEntity) vehicleService.createVehicle(vehicle("CD34 EFG")).getBody();
+
+        // Act
+        ResponseEntity<?> merge = vehicleService.mergeUpdateVehicle(
+                other.getId(), objectMapper.readTree("{\"registration\":\"ab12cde\"}"), null);
+        ResponseEntity<?> patch = vehicleService.updateVehicle(other.getId(),
+                objectMapper.readTree("[{\"op\":\"replace\",\"path\":\"/registration\",\"value\":\"AB12 CDE\"}]"), null);
+
+        // Assert
+        assertEquals(400, merge.getStatusCode().value());
+        assertEquals("Vehicle already exists", ((Map<?, ?>) merge.getBody()).get("message"));
+        assertEquals(400, patch.getStatusCode().value());
+        assertEquals("Vehicle already exists", ((Map<?, ?>) patch.getBody()).get("message"));
+        assertEquals("CD34 EFG", vehicleRepository.findById(other.getId()).orElseThrow().getRegistration());
+        assertEquals(2, vehicleOutboxRepository.count());
+    }
+
+    @Test
+    public void testSpecificationsOutOfRangeAreRejected() throws Exception {
+        // Arrange
+        VehicleEntity created = (VehicleEntity) vehicleService.createVehicle(vehicle("AB12 CDE")).getBody();
+        VehicleEntity tooLarge = vehicle("CD34 EFG");
+        tooLarge.setEngineSize(new BigDecimal("1598"));
+
+        // Act
+        ResponseEntity<?> create = vehicleService.createVehicle(tooLarge);
+        ResponseEntity<?> update = vehicleService.mergeUpdateVehicle(
+                created.getId(), objectMapper.readTree("{\"engineSize\":\"1598\"}"), null);
+
+        // Assert
+        assertEquals(400, create.getStatusCode().value());
+        assertEquals(400, update.getStatusCode().value());
+        assertEquals(1, vehicleRepository.count());
+        assertEquals(0, new BigDecimal("1.6").compareTo(vehicleRepository.findById(created.getId()).orElseThrow().getEngineSize()));
+        assertEquals(1, vehicleOutboxRepository.count());
+    }
+
+    @Test
+    public void testChangesAreReadFromCursor() {
+        // Arrange
+        vehicleService.createVehicle(vehicle("AB12 CDE"));
+        vehicleService.createVehicle(vehicle("CD34 EFG"));
+        vehicleService.createVehicle(vehicle("EF56 GHI"));
+        Map<?, ?> first = (Map<?, ?>) vehicleChangeService.getVehicleChanges(null, 2).getBody();
+
+        // Act
+        Map<?, ?> second = (Map<?, ?>) vehicleChangeService.getVehicleChanges((Long) first.get("nextCursor"), 2).getBody();
+        Map<?, ?> caughtUp = (Map<?, ?>) vehicleChangeService.getVehicleChanges((Long) second.get("nextCursor"), 2).getBody();
+
+        // Assert
+        assertEquals(2, first.get("size"));
+        assertEquals(1, second.get("size"));
+        assertEquals("EF56GHI", ((List<?>) second.get("data")).stream()
+                .map(change -> ((VehicleChange) change).registrationKey()).findFirst().orElse(null));
+        assertEquals(0, caughtUp.get("size"));
+        assertNotNull(caughtUp.get("nextCursor"));
+        assertEquals(second.get("nextCursor"), caughtUp.get("nextCursor"));
+    }
+}
@@ -0,0 +1,123 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatchException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VehiclePatchApplierTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final VehiclePatchApplier vehiclePatchApplier = new VehiclePatchApplier(objectMapper);
+
+    private static VehicleEntity vehicle() {
+        return new VehicleEntity(1L, "AB12 CDE", "Ford", "Focus", "Blue", "B1", true, "WF0AXXGCDA1234567",
+                new BigDecimal("1.6"), "Petrol", "Manual", "Hatchback", 2015, 60000);
+    }
+
+    @Test
+    public void testApplyJsonPatchSetsKnownFields() throws Exception {
+        // Arrange
+        VehicleEntity vehicle = vehicle();
+        JsonNode patch = objectMapper.readTree("[{\"op\":\"replace\",\"path\":\"/colour\",\"value\":\"Red\"}," +
+                "{\"op\":\"replace\",\"path\":\"/drivable\",\"value\":false},{\"op\":\"remove\",\"path\":\"/colourCode\"}]");
+
+        // Act
+        vehiclePatchApplier.applyJsonPatch(patch, vehicle);
+
+        // Assert
+        assertEquals("Red", vehicle.getColour());
+        assertFalse(vehicle.isDrivable());
+        assertNull(vehicle.getColourCode());
+        assertEquals(1L, vehicle.getId());
+        assertEquals("Focus", vehicle.getModel());
+    }
+
+    @Test
+    public void testApplyJsonPatchFallsBackForOtherOperations() throws Exception {
+        // Arrange
+        VehicleEntity vehicle = vehicle();
+        JsonNode patch = objectMapper.readTree("[{\"op\":\"test\",\"path\":\"/make\",\"value\":\"Ford\"}," +
+                "{\"op\":\"copy\",\"from\":\"/colour\",\"path\":\"/colourCode\"},{\"op\":\"replace\",\"path\":\"/id\",\"value\":99}]");
+
+        // Act
+        vehiclePatchApplier.applyJsonPatch(patch, vehicle);
+
+        // Assert
+        assertEquals("Blue", vehicle.getColourCode());
+        assertEquals(1L, vehicle.getId());
+        assertEquals("WF0AXXGCDA1234567", vehicle.getVIN());
+    }
+
+    @Test
+    public void testApplyJsonPatchFailsWhenTestOperationFails() throws Exception {
+        // Arrange
+        VehicleEntity vehicle = vehicle();
+        JsonNode patch = objectMapper.readTree("[{\"op\":\"test\",\"path\":\"/make\",\"value\":\"Vauxhall\"}]");
+
+        // Act & Assert
+        assertThrows(JsonPatchException.class, () -> vehiclePatchApplier.applyJsonPatch(patch, vehicle));
+    }
+
+    @Test
+    public void testApplyMergePatchSetsAndClearsFields() throws Exception {
+        // Arrange
+        VehicleEntity vehicle = vehicle();
+        JsonNode patch = objectMapper.readTree("{\"mileage\":\"65000\",\"vin\":null}");
+
+        // Act
+        vehiclePatchApplier.applyMergePatch(patch, vehicle);
+
+        // Assert
+        assertEquals(65000, vehicle.getMileage());
+        assertNull(vehicle.getVIN());
+        assertEquals("AB12 CDE", vehicle.getRegistration());
+    }
+
+    @Test
+    public void testApplyMergePatchRejectsClearingRequiredField() throws Exception {
+        // Arrange
+        VehicleEntity vehicle = vehicle();
+        JsonNode patch = objectMapper.readTree("{\"registration\":null}");
+
+        // Act & Assert
+        assertThrows(JsonPatchException.class, () -> vehiclePatchApplier.applyMergePatch(patch, vehicle));
+    }
+
+    @Test
+    public void testApplyMergePatchRejectsMileageThatIsNotANumber() throws Exception {
+        // Arrange
+        VehicleEntity vehicle = vehicle();
+        JsonNode patch = objectMapper.readTree("{\"mileage\":\"60k\"}");
+
+        // Act & Assert
+        assertThrows(JsonPatchException.class, () -> vehiclePatchApplier.applyMergePatch(patch, vehicle));
+        assertEquals(60000, vehicle.getMileage());
+    }
+
+    @Test
+    public void testApplyMergePatchRejectsEngineSizeOutOfRange() throws Exception {
+        // Arrange
+        VehicleEntity vehicle = vehicle();
+        JsonNode patch = objectMapper.readTree("{\"engineSize\":\"1598\"}");
+
+        // Act & Assert
+        assertThrows(JsonPatchException.class, () -> vehiclePatchApplier.applyMergePatch(patch, vehicle));
+    }
+
+    @Test
+    public void testApplyJsonPatchRejectsNegativeYear() throws Exception {
+        // Arrange
+        VehicleEntity vehicle = vehicle();
+        JsonNode patch = objectMapper.readTree("[{\"op\":\"replace\",\"path\":\"/year\",\"value\":-1}]");
+
+        // Act & Assert
+        assertThrows(JsonPatchException.class, () -> vehiclePatchApplier.applyJsonPatch(patch, vehicle));
+    }
+}
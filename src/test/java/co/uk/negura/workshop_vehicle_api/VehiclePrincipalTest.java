@@ -0,0 +1,65 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.security.VehicleAuthority;
+import co.uk.negura.workshop_vehicle_api.security.VehicleAuthorizationManager;
+import co.uk.negura.workshop_vehicle_api.security.VehiclePrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VehiclePrincipalTest {
+
+    private static final String MESSAGE = "{\"object\":\"user\",\"data\":{\"id\":7,\"username\":\"technician\",\"roles\":["
+            + "{\"name\":\"MECHANIC\",\"authorities\":[{\"name\":\"USER_DETAILS_READ\"},{\"name\":\"USER_DETAILS_WRITE\"}]},"
+            + "{\"name\":\"AUDITOR\",\"authorities\":[{\"name\":\"USER_DETAILS_READ\"},{\"name\":\"INVOICE_READ\"}]}]}}";
+
+    @Test
+    public void testFromValidationMessageReadsUsernameAndAuthorities() throws IOException {
+        // Act
+        VehiclePrincipal principal = VehiclePrincipal.fromValidationMessage(MESSAGE);
+
+        // Assert
+        assertEquals("technician", principal.getUsername());
+        assertEquals(EnumSet.of(VehicleAuthority.USER_DETAILS_READ, VehicleAuthority.USER_DETAILS_WRITE),
+                principal.getVehicleAuthorities());
+        assertFalse(principal.hasAuthority(VehicleAuthority.USER_DETAILS_DELETE));
+        assertEquals(List.of("USER_DETAILS_READ", "USER_DETAILS_WRITE", "INVOICE_READ"),
+                principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+
+    @Test
+    public void testFromValidationMessageRejectsMessageWithoutUser() {
+        // Act & Assert
+        assertThrows(IOException.class, () -> VehiclePrincipal.fromValidationMessage("{\"data\":{}}"));
+        assertThrows(IOException.class, () -> VehiclePrincipal.fromValidationMessage("not json"));
+    }
+
+    @Test
+    public void testAuthorizationManagerChecksThePrincipalAuthorities() {
+        // Arrange
+        VehiclePrincipal principal = VehiclePrincipal.of("reader", List.of("USER_DETAILS_READ"));
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        AnonymousAuthenticationToken anonymous = new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+        // Act & Assert
+        assertTrue(VehicleAuthorizationManager.requires(VehicleAuthority.USER_DETAILS_READ)
+                .check(() -> authentication, null).isGranted());
+        assertFalse(VehicleAuthorizationManager.requires(VehicleAuthority.USER_DETAILS_WRITE)
+                .check(() -> authentication, null).isGranted());
+        assertFalse(VehicleAuthorizationManager.requires(VehicleAuthority.USER_DETAILS_READ)
+                .check(() -> anonymous, null).isGranted());
+    }
+}
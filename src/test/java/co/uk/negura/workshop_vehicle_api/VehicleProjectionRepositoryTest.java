@@ -0,0 +1,103 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.model.VehicleEntity;
+import co.uk.negura.workshop_vehicle_api.model.VehicleFields;
+import co.uk.negura.workshop_vehicle_api.model.VehicleSearchCriteria;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleSpecifications;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:vehicles;MODE=MySQL;NON_KEYWORDS=YEAR,VALUE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class VehicleProjectionRepositoryTest {
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @BeforeEach
+    public void setUp() {
+        vehicleRepository.saveAll(List.of(
+                new VehicleEntity(null, "AB12 CDE", "Ford", "Focus", "Blue", "B1", true, "WF0AXXGCDA1234567",
+                        new BigDecimal("1.6"), "Petrol", "Manual", "Hatchback", 2015, 60000),
+                new VehicleEntity(null, "CD34 EFG", "Ford", "Fiesta", "Red", "R1", true, null,
+                        new BigDecimal("1.0"), "Petrol", "Manual", "Hatchback", 2018, 30000),
+                new VehicleEntity(null, "EF56 GHI", "Vauxhall", "Astra", "Grey", "G1", false, null,
+                        new BigDecimal("1.4"), "Diesel", "Automatic", "Estate", 2012, 90000)));
+    }
+
+    @Test
+    public void testFindAllProjectedSelectsOnlyRequestedFields() {
+        // Arrange
+        List<String> fields = VehicleFields.parse("registration, make,vin");
+
+        // Act
+        Page<Map<String, Object>> page = vehicleRepository.findAllProjected(
+                VehicleSpecifications.matching(new VehicleSearchCriteria("Ford", null, null, null, null, null, null, null, null, null, null, null)),
+                fields, PageRequest.of(0, 1, Sort.by("registration")));
+
+        // Assert
+        assertEquals(2, page.getTotalElements());
+        Map<String, Object> vehicle = page.getContent().getFirst();
+        assertEquals(List.of("id", "registration", "make", "vin"), List.copyOf(vehicle.keySet()));
+        assertEquals("AB12 CDE", vehicle.get("registration"));
+        assertEquals("WF0AXXGCDA1234567", vehicle.get("vin"));
+    }
+
+    @Test
+    public void testFindAllProjectedFollowsKeysetAndLimit() {
+        // Arrange
+        Long firstId = (Long) vehicleRepository.findAllProjected(null, List.of("id"), Sort.by("id"), Limit.of(1))
+                .getFirst().get("id");
+
+        // Act
+        List<Map<String, Object>> vehicles = vehicleRepository.findAllProjected(
+                VehicleSpecifications.idGreaterThan(firstId), VehicleFields.parse("drivable"), Sort.by("id"), Limit.of(5));
+
+        // Assert
+        assertEquals(2, vehicles.size());
+        assertEquals(List.of(true, false), vehicles.stream().map(vehicle -> vehicle.get("drivable")).toList());
+    }
+
+    @Test
+    public void testFindAllProjectedFiltersNumericRangesAndKeepsTextJson() {
+        // Arrange
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria(null, null, null, null, null, 2010, 2016,
+                null, 70000, new BigDecimal("1.4"), null, null);
+
+        // Act
+        List<Map<String, Object>> vehicles = vehicleRepository.findAllProjected(VehicleSpecifications.matching(criteria),
+                VehicleFields.parse("year,mileage,engineSize"), Sort.by("year"), Limit.unlimited());
+
+        // Assert
+        assertEquals(1, vehicles.size());
+        assertEquals("2015", vehicles.getFirst().get("year"));
+        assertEquals("60000", vehicles.getFirst().get("mileage"));
+        assertEquals("1.6", vehicles.getFirst().get("engineSize"));
+    }
+
+    @Test
+    public void testParseRejectsUnknownField() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> VehicleFields.parse("registration,registrationKey"));
+    }
+}
@@ -0,0 +1,236 @@
+package co.uk.negura.workshop_vehicle_api;
+
+import co.uk.negura.workshop_vehicle_api.controller.VehicleController;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleOutboxRepository;
+import co.uk.negura.workshop_vehicle_api.repository.VehicleRepository;
+import co.uk.negura.workshop_vehicle_api.service.VehicleCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleChangeService;
+import co.uk.negura.workshop_vehicle_api.service.VehicleImportService;
+import co.uk.negura.workshop_vehicle_api.service.VehicleListCache;
+import co.uk.negura.workshop_vehicle_api.service.VehicleOutboxWriter;
+import co.uk.negura.workshop_vehicle_api.service.VehiclePatchApplier;
+import co.uk.negura.workshop_vehicle_api.service.VehicleService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Holds every vehicle endpoint to the number of SQL statements it needs, requests going through the controller
+ * so that field selection, filters, paging and streaming are part of what is counted.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:budget;MODE=MySQL;NON_KEYWORDS=YEAR,VALUE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "vehicle.outbox.settleTime=PT0S"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, JdbcTemplateAutoConfiguration.class})
+@Import({SqlStatementCounter.Config.class, VehicleQueryBudgetTest.StreamingFetchSizeConfig.class, VehicleController.class, VehicleService.class, VehicleImportService.class,
+        VehicleCache.class, VehicleListCache.class, VehiclePatchApplier.class, VehicleOutboxWriter.class,
+        VehicleChangeService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class VehicleQueryBudgetTest {
+
+    private static final String VEHICLE_URL = "/api/v1/vehicle";
+
+    @Autowired
+    private VehicleController vehicleController;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Autowired
+    private VehicleCache vehicleCache;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private VehicleOutboxRepository vehicleOutboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+
+    /**
+     * H2 rejects the fetch size of Integer.MIN_VALUE that makes the MySQL driver stream rows, so the statements
+     * of the streamed endpoint run with the default fetch size instead.
+     */
+    @TestConfiguration
+    static class StreamingFetchSizeConfig {
+
+        @Bean
+        static BeanPostProcessor streamingFetchSizeDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource
+                            ? ignoringStreamingFetchSize(DataSource.class, dataSource) : bean;
+                }
+            };
+        }
+
+        private static <T> T ignoringStreamingFetchSize(Class<T> type, Object target) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if ("setFetchSize".equals(method.getName()) && (int) args[0] < 0) {
+                    return null;
+                }
+                try {
+                    Object result = method.invoke(target, args);
+                    if (result instanceof Connection connection) {
+                        return ignoringStreamingFetchSize(Connection.class, connection);
+                    }
+                    if (result instanceof PreparedStatement statement && method.getName().startsWith("prepare")) {
+                        return ignoringStreamingFetchSize(PreparedStatement.class, statement);
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }));
+        }
+    }
+
+    private static String vehicle(String registration) {
+        return "{\"registration\":\"" + registration + "\",\"make\":\"Ford\",\"model\":\"Focus\",\"colour\":\"Blue\"," +
+                "\"colourCode\":\"B1\",\"drivable\":true,\"engineSize\":\"1.6\",\"fuelType\":\"Petrol\"," +
+                "\"transmission\":\"Manual\",\"bodyType\":\"Hatchback\",\"year\":\"2015\",\"mileage\":\"60000\"}";
+    }
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(vehicleController)
+                .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new StringHttpMessageConverter(),
+                        new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        vehicleCache.evictAll();
+        vehicleOutboxRepository.deleteAll();
+        vehicleRepository.purgeDeletedBefore(Instant.now().plus(Duration.ofDays(1)));
+        vehicleRepository.deleteAll();
+    }
+
+    /**
+     * Perform the request, waiting for the async dispatch of a streamed response, and fail if it prepared more
+     * statements than its budget.
+     * @param budget the maximum number of statements the request may prepare.
+     * @param request the request to perform.
+     * @return the response.
+     * @throws Exception if the request fails.
+     */
+    private MockHttpServletResponse perform(int budget, RequestBuilder request) throws Exception {
+        MvcResult result = sqlStatementCounter.withinBudget(budget, () -> {
+            MvcResult performed = mockMvc.perform(request).andReturn();
+            return performed.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(performed)).andReturn() : performed;
+        });
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return result.getResponse();
+    }
+
+    private JsonNode json(MockHttpServletResponse response) throws Exception {
+        return objectMapper.readTree(response.getContentAsString());
+    }
+
+    private long create(String registration) throws Exception {
+        return json(perform(2, post(VEHICLE_URL).contentType(MediaType.APPLICATION_JSON).content(vehicle(registration))))
+                .get("id").asLong();
+    }
+
+    @Test
+    public void testWritesStayWithinBudget() throws Exception {
+        // Arrange
+        long id = create("AB12 CDE");
+        vehicleCache.evictAll();
+
+        // Act
+        JsonNode updated = json(perform(3, patch(VEHICLE_URL + "/" + id)
+                .contentType("application/merge-patch+json").content("{\"mileage\":\"65000\"}")));
+        perform(1, get(VEHICLE_URL).contentType(MediaType.APPLICATION_JSON).content("{\"id\":\"" + id + "\"}"));
+        perform(3, delete(VEHICLE_URL).contentType(MediaType.APPLICATION_JSON).content("{\"id\":\"" + id + "\"}"));
+
+        // Assert
+        assertEquals("65000", updated.get("mileage").asText());
+        assertEquals(0, vehicleRepository.count());
+    }
+
+    @Test
+    public void testReadsStayWithinBudget() throws Exception {
+        // Arrange
+        long first = create("AB12 CDE");
+        create("CD34 EFG");
+        create("EF56 GHI");
+        vehicleCache.evictAll();
+
+        // Act
+        perform(1, get(VEHICLE_URL).contentType(MediaType.APPLICATION_JSON).content("{\"id\":\"" + first + "\"}"));
+        perform(0, get(VEHICLE_URL).contentType(MediaType.APPLICATION_JSON).content("{\"id\":\"" + first + "\"}"));
+        perform(1, get(VEHICLE_URL).contentType(MediaType.APPLICATION_JSON).content("{\"registration\":\"cd34 efg\"}"));
+        perform(2, get(VEHICLE_URL + "/search").param("make", "Ford").param("size", "2"));
+        JsonNode filtered = json(perform(1, get(VEHICLE_URL + "/search").param("make", "Ford").param("yearFrom", "2010")
+                .param("mileageTo", "70000").param("engineSizeTo", "2.0").param("sort", "year,desc")
+                .param("fields", "id,make")));
+        vehicleCache.evictAll();
+        JsonNode batch = json(perform(2, post(VEHICLE_URL + "/batch").param("fields", "registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[" + first + ",-1],\"registrations\":[\"CD34 EFG\",\"EF56 GHI\"]}")));
+        perform(1, get(VEHICLE_URL + "/all"));
+        perform(0, get(VEHICLE_URL + "/all").header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+        perform(1, get(VEHICLE_URL + "/all").param("fields", "registration,make"));
+        perform(1, get(VEHICLE_URL + "/page").param("size", "2"));
+        perform(1, get(VEHICLE_URL + "/page").param("size", "2").param("fields", "id"));
+        perform(1, get(VEHICLE_URL + "/delta").param("size", "10"));
+        String streamed = perform(1, get(VEHICLE_URL + "/stream")).getContentAsString();
+
+        // Assert
+        assertEquals(3, filtered.get("data").size());
+        assertEquals(3, batch.get("found").asInt());
+        assertEquals(3, streamed.lines().count());
+    }
+}
@@ -0,0 +1,34 @@
+CREATE TABLE IF NOT EXISTS vehicles (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    registration VARCHAR(255) NOT NULL,
+    make VARCHAR(255) NOT NULL,
+    model VARCHAR(255) NOT NULL,
+    colour VARCHAR(255),
+    colour_code VARCHAR(255),
+    is_drivable BOOLEAN NOT NULL,
+    vin VARCHAR(255),
+    engine_size DECIMAL(3, 1),
+    fuel_type VARCHAR(255),
+    transmission VARCHAR(255),
+    body_type VARCHAR(255),
+    year INT,
+    mileage INT,
+    registration_key VARCHAR(255),
+    vin_key VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    deleted_at TIMESTAMP(6),
+    version BIGINT NOT NULL,
+    CONSTRAINT uk_vehicles_registration_key UNIQUE (registration_key),
+    CONSTRAINT uk_vehicles_vin_key UNIQUE (vin_key)
+);
+
+CREATE TABLE IF NOT EXISTS vehicle_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    type VARCHAR(16) NOT NULL,
+    vehicle_id BIGINT NOT NULL,
+    registration_key VARCHAR(255),
+    payload CLOB,
+    created_at TIMESTAMP(6) NOT NULL,
+    published_at TIMESTAMP(6)
+);